@@ -0,0 +1,13 @@
+plugins {
+    id("java")
+    `java-library`
+}
+
+group = "com.mcnealysoftware"
+version = "1.0-SNAPSHOT"
+
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(25)
+    }
+}
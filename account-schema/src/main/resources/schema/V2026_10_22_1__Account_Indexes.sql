@@ -0,0 +1,6 @@
+-- balance is already an exact BIGINT in minor units, see V2026_10_20_1__Balance_Minor.sql
+-- id is in both indexes so they hold rows in the ORDER BY of the keyset reads, the lower bound seeks to the page
+ALTER TABLE account
+    MODIFY name VARCHAR(255),
+    ADD INDEX account_balance (balance_minor, id),
+    ADD INDEX account_timestamp (timestamp, id);
@@ -0,0 +1,25 @@
+package com.mcnealysoftware.minorunits;
+
+import java.math.BigDecimal;
+
+/**
+ * Balances are stored as a whole number of minor units (cents), so all arithmetic on them is on a primitive long.
+ * BigDecimal is only used at the edges of the API. Shared by all modules, a balance means the same everywhere.
+ */
+public final class MinorUnits {
+    public static final int SCALE = 2;
+
+    private MinorUnits() {
+    }
+
+    /**
+     * @throws ArithmeticException when the amount has fractions of a minor unit or does not fit in a long.
+     */
+    public static long toMinor(BigDecimal amount) {
+        return amount.movePointRight(SCALE).longValueExact();
+    }
+
+    public static BigDecimal fromMinor(long minor) {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+}
@@ -0,0 +1,25 @@
+package com.mcnealysoftware.minorunits;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MinorUnitsTest {
+
+    @Test
+    void toMinorTest() {
+        assertEquals(100050L, MinorUnits.toMinor(new BigDecimal("1000.50")));
+        assertEquals(-25L, MinorUnits.toMinor(new BigDecimal("-0.25")));
+        assertEquals(100000L, MinorUnits.toMinor(BigDecimal.valueOf(1000L)));
+        assertThrows(ArithmeticException.class, () -> MinorUnits.toMinor(new BigDecimal("0.001")));
+    }
+
+    @Test
+    void fromMinorTest() {
+        assertEquals(new BigDecimal("1000.50"), MinorUnits.fromMinor(100050L));
+        assertEquals(new BigDecimal("-0.25"), MinorUnits.fromMinor(-25L));
+    }
+}
@@ -20,6 +20,13 @@ repositories {
 
 dependencies {
     implementation("com.mysql:mysql-connector-j:9.5.0")
+    implementation(project(":minor-units"))
+    implementation(project(":slow-operation-log"))
+    // migrations every module runs the same, picked up from classpath:schema next to the module's own
+    runtimeOnly(project(":account-schema"))
+    // generates the index-based readers of @RowMapped types, the annotations are gone after compiling
+    compileOnly(project(":row-mapper-processor"))
+    annotationProcessor(project(":row-mapper-processor"))
     implementation("org.springframework.boot:spring-boot-starter-jdbc")
     implementation("org.springframework.boot:spring-boot-starter-data-jpa")
     implementation("org.springframework.retry:spring-retry")
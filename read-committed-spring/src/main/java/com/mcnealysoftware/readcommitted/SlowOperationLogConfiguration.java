@@ -0,0 +1,40 @@
+package com.mcnealysoftware.readcommitted;
+
+import com.mcnealysoftware.slowoperationlog.SlowOperationLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Puts every DataSource of the context behind one {@link SlowOperationLog}, so the JDBC, EntityManager and JPA
+ * repositories are all covered. Only with account.slow-operation-log.enabled=true, and account.slow-operation-log.file
+ * says where the log goes.
+ */
+@Configuration
+@ConditionalOnProperty(name = "account.slow-operation-log.enabled", havingValue = "true")
+public class SlowOperationLogConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public static SlowOperationLog slowOperationLog(@Value("${account.slow-operation-log.threshold:PT0.5S}") Duration threshold,
+                                                    @Value("${account.slow-operation-log.explain-interval:PT1M}") Duration explainInterval,
+                                                    @Value("${account.slow-operation-log.file}") String filePattern,
+                                                    @Value("${account.slow-operation-log.max-file-bytes:10000000}") int maxFileBytes,
+                                                    @Value("${account.slow-operation-log.files:5}") int files) {
+        return new SlowOperationLog(threshold, explainInterval, filePattern, maxFileBytes, files);
+    }
+
+    @Bean
+    public static BeanPostProcessor slowOperationLogPostProcessor(SlowOperationLog slowOperationLog) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource ? slowOperationLog.wrap(dataSource) : bean;
+            }
+        };
+    }
+}
@@ -1,8 +1,11 @@
 package com.mcnealysoftware.readcommitted.account;
 
+import com.mcnealysoftware.minorunits.MinorUnits;
+import com.mcnealysoftware.rowmapper.RowMapped;
 import jakarta.persistence.*;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 
 @Entity
 @Table(name = "account")
@@ -10,12 +13,18 @@ public class Account {
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
     private String name;
-    private BigDecimal balance;
+    private long balanceMinor;
+    @Column(insertable = false, updatable = false)
+    private Instant timestamp;
 
-    public Account(long id, String name, BigDecimal balance) {
+    /**
+     * Also what the generated AccountReader reads a row with.
+     */
+    @RowMapped
+    public Account(long id, String name, long balanceMinor) {
         this.id = id;
         this.name = name;
-        this.balance = balance;
+        this.balanceMinor = balanceMinor;
     }
 
     public Account() {
@@ -38,10 +47,26 @@ public class Account {
     }
 
     public BigDecimal getBalance() {
-        return balance;
+        return MinorUnits.fromMinor(balanceMinor);
     }
 
     public void setBalance(BigDecimal balance) {
-        this.balance = balance;
+        this.balanceMinor = MinorUnits.toMinor(balance);
+    }
+
+    public long getBalanceMinor() {
+        return balanceMinor;
+    }
+
+    public void setBalanceMinor(long balanceMinor) {
+        this.balanceMinor = balanceMinor;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Instant timestamp) {
+        this.timestamp = timestamp;
     }
 }
@@ -11,6 +11,10 @@ import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Repository
 public class AccountRepositoryEntityManager {
@@ -33,6 +37,22 @@ public class AccountRepositoryEntityManager {
         return account.getId();
     }
 
+    /**
+     * Balances of many accounts in one transaction, one query per chunk of IDs. Accounts that don't exist are left out.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public Map<Long, BigDecimal> getBalances(Collection<Long> accountIds) {
+        final var balances = new HashMap<Long, BigDecimal>(accountIds.size() * 2);
+        final var query = entityManager.createQuery("SELECT a FROM Account a WHERE a.id IN :ids", Account.class);
+        for (List<Long> chunk : IdChunks.of(accountIds)) {
+            query.setParameter("ids", chunk);
+            for (Account account : query.getResultList()) {
+                balances.put(account.getId(), account.getBalance());
+            }
+        }
+        return balances;
+    }
+
     @Transactional(readOnly = true, isolation = Isolation.READ_UNCOMMITTED)
     public Page<Account> getAccounts(long page, long pageSize) {
         final var query = entityManager.createQuery("SELECT a FROM Account a", Account.class);
@@ -1,18 +1,25 @@
 package com.mcnealysoftware.readcommitted.account;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
+import java.time.Instant;
 
 @Repository
 public interface AccountRepositoryJPA extends JpaRepository<Account, Long> {
     @Modifying
-    @Query("UPDATE Account SET balance = balance + :amount WHERE id = :accountId")
-    void moveAmount(long accountId, BigDecimal amount);
+    @Query("UPDATE Account SET balanceMinor = balanceMinor + :amount WHERE id = :accountId")
+    void moveAmount(long accountId, long amount);
 
-    @Query("SELECT SUM(a.balance) FROM Account AS a")
-    BigDecimal getTotalBalances();
+    @Query("SELECT COALESCE(SUM(a.balanceMinor), 0L) FROM Account AS a")
+    long getTotalBalances();
+
+    Window<Account> findByBalanceMinorBetweenOrderByBalanceMinorAscIdAsc(long minBalanceMinor, long maxBalanceMinor, ScrollPosition position, Limit limit);
+
+    Window<Account> findByTimestampGreaterThanEqualAndTimestampLessThanOrderByTimestampAscIdAsc(Instant from, Instant to, ScrollPosition position, Limit limit);
 }
@@ -1,14 +1,24 @@
 package com.mcnealysoftware.readcommitted.account;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.domain.Page;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.mcnealysoftware.minorunits.MinorUnits.toMinor;
 
 @Service
 public class AccountRepositoryJPAService {
@@ -25,6 +35,21 @@ public class AccountRepositoryJPAService {
         return account.getId();
     }
 
+    /**
+     * Balances of many accounts in one transaction. findAllById loads a whole chunk with one IN query instead of
+     * one select per ID. Accounts that don't exist are left out.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public Map<Long, BigDecimal> getBalances(Collection<Long> accountIds) {
+        final var balances = new HashMap<Long, BigDecimal>(accountIds.size() * 2);
+        for (List<Long> chunk : IdChunks.of(accountIds)) {
+            for (Account account : accountRepository.findAllById(chunk)) {
+                balances.put(account.getId(), account.getBalance());
+            }
+        }
+        return balances;
+    }
+
     @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
     public Page<Account> getAccounts(int page, int pageSize) {
         return accountRepository.findAll(PageRequest.of(page, pageSize, Sort.by("id").descending()));
@@ -34,4 +59,18 @@ public class AccountRepositoryJPAService {
     public Page<Account> getAccountsRepeatableRead(int page, int pageSize) {
         return accountRepository.findAll(PageRequest.of(page, pageSize));
     }
+
+    /**
+     * Keyset paged, start with {@code ScrollPosition.keyset()} and continue from
+     * {@code window.positionAt(window.size() - 1)} while {@code window.hasNext()}.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
+    public Window<Account> getAccountsByBalance(BigDecimal minBalance, BigDecimal maxBalance, ScrollPosition position, int pageSize) {
+        return accountRepository.findByBalanceMinorBetweenOrderByBalanceMinorAscIdAsc(toMinor(minBalance), toMinor(maxBalance), position, Limit.of(pageSize));
+    }
+
+    @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
+    public Window<Account> getAccountsCreatedBetween(Instant from, Instant to, ScrollPosition position, int pageSize) {
+        return accountRepository.findByTimestampGreaterThanEqualAndTimestampLessThanOrderByTimestampAscIdAsc(from, to, position, Limit.of(pageSize));
+    }
 }
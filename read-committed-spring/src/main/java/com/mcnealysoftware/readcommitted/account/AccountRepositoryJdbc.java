@@ -1,9 +1,14 @@
 package com.mcnealysoftware.readcommitted.account;
 
+import com.mcnealysoftware.rowmapper.SelectOf;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
@@ -14,15 +19,46 @@ import org.springframework.data.domain.Page;
 import javax.sql.DataSource;
 import java.math.BigDecimal;
 import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static com.mcnealysoftware.minorunits.MinorUnits.fromMinor;
+import static com.mcnealysoftware.minorunits.MinorUnits.toMinor;
 
 @Repository
 public class AccountRepositoryJdbc {
 
+    // account reads, their select lists are checked against the generated AccountReader when compiling
+    @SelectOf(Account.class)
+    private static final String SELECT_PAGE = "SELECT id, name, balance_minor FROM account LIMIT ? OFFSET ?";
+    @SelectOf(Account.class)
+    private static final String SELECT_RANGE = "SELECT id, name, balance_minor FROM account WHERE id BETWEEN ? AND ? ORDER BY id";
+    // keyset reads, the lower bound is the key of the previous page so the index range starts there. MySQL doesn't
+    // make a range out of (a, b) > (?, ?), the expanded form only narrows what the bound already seeks to
+    @SelectOf(Account.class)
+    private static final String SELECT_BY_BALANCE = "SELECT id, name, balance_minor FROM account WHERE balance_minor BETWEEN ? AND ? AND (balance_minor > ? OR (balance_minor = ? AND id > ?)) ORDER BY balance_minor, id LIMIT ?";
+    @SelectOf(Account.class)
+    private static final String SELECT_CREATED_BETWEEN = "SELECT id, name, balance_minor, timestamp FROM account WHERE timestamp >= ? AND timestamp < ? AND (timestamp > ? OR (timestamp = ? AND id > ?)) ORDER BY timestamp, id LIMIT ?";
+
+    private static final AccountReader ACCOUNT_READER = new AccountReader();
+
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
     @Autowired
     public AccountRepositoryJdbc(DataSource dataSource) {
         this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
     }
 
     @Transactional(readOnly = false, isolation = Isolation.READ_UNCOMMITTED)
@@ -31,18 +67,35 @@ public class AccountRepositoryJdbc {
         jdbcTemplate.update(
                 con -> {
                     var ps = con.prepareStatement(
-                            "INSERT INTO account (name, balance) VALUES (?, ?)", PreparedStatement.RETURN_GENERATED_KEYS);
+                            "INSERT INTO account (name, balance_minor) VALUES (?, ?)", PreparedStatement.RETURN_GENERATED_KEYS);
                     ps.setString(1, name);
-                    ps.setBigDecimal(2, balance);
+                    ps.setLong(2, toMinor(balance));
                     return ps;
                 }, keyHolder);
         return keyHolder.getKey().longValue();
     }
 
+    /**
+     * Balances of many accounts in one transaction, one query per chunk of IDs. REPEATABLE_READ so every chunk
+     * reads from the same snapshot. Accounts that don't exist are left out.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public Map<Long, BigDecimal> getBalances(Collection<Long> accountIds) {
+        final var balances = new HashMap<Long, BigDecimal>(accountIds.size() * 2);
+        for (List<Long> chunk : IdChunks.of(accountIds)) {
+            namedParameterJdbcTemplate.query("SELECT id, balance_minor FROM account WHERE id IN (:ids)",
+                    Map.of("ids", chunk),
+                    rs -> {
+                        balances.put(rs.getLong(1), fromMinor(rs.getLong(2)));
+                    });
+        }
+        return balances;
+    }
+
     @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
     public Page<Account> getAccounts(long page, long pageSize) {
-        final var accounts = jdbcTemplate.query("SELECT id, name, balance FROM account LIMIT ? OFFSET ?",
-                new AccountRowMapper(),
+        final var accounts = jdbcTemplate.query(SELECT_PAGE,
+                ACCOUNT_READER,
                 pageSize,
                 page * pageSize
         );
@@ -52,12 +105,123 @@ public class AccountRepositoryJdbc {
 
     @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
     public Page<Account> getAccountsRepeatableRead(long page, long pageSize) {
-        final var accounts = jdbcTemplate.query("SELECT id, name, balance FROM account LIMIT ? OFFSET ?",
-                new AccountRowMapper(),
+        final var accounts = jdbcTemplate.query(SELECT_PAGE,
+                ACCOUNT_READER,
                 pageSize,
                 page * pageSize
         );
         final var total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM account", Long.class);
         return new PageImpl<>(accounts, Pageable.ofSize((int) 1), total);
     }
-}
\ No newline at end of file
+
+    /**
+     * Reads every account, in ID order, like paging through {@link #getAccounts} but on several connections at once.
+     * The highest ID is read once up front, accounts created after that are left out, so the read ends. The IDs up to
+     * it are split into ranges that are fetched at the same time, and handed to action in order from a buffer of at
+     * most as many ranges as connections, so a slow action holds back the fetching instead of filling the heap.
+     * <p>
+     * Not a transaction, every range is read on a connection of its own. An account that's changed while reading has
+     * its value at the time its range was read. Use no more connections than the pool has.
+     *
+     * @param connections Ranges fetched at the same time.
+     * @param rangeSize   IDs per range, fewer accounts where there are gaps.
+     * @return Number of accounts read.
+     */
+    public long forEachAccount(int connections, long rangeSize, Consumer<Account> action) {
+        final var bounds = jdbcTemplate.queryForObject("SELECT COALESCE(MIN(id), 1), COALESCE(MAX(id), 0) FROM account",
+                (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)});
+        final var minId = bounds[0];
+        final var horizon = bounds[1];
+
+        final var ranges = new ArrayBlockingQueue<Future<List<Account>>>(connections);
+        var count = 0L;
+        try (final var fetchers = Executors.newFixedThreadPool(connections, Thread.ofVirtual().factory());
+             final var dispatcher = Executors.newSingleThreadExecutor(Thread.ofVirtual().factory())) {
+            try {
+                dispatcher.submit(() -> {
+                    for (long from = minId; from <= horizon; from += rangeSize) {
+                        final var fromId = from;
+                        final var toId = Math.min(from + rangeSize - 1, horizon);
+                        // blocks while the buffer is full
+                        ranges.put(fetchers.submit(() -> jdbcTemplate.query(
+                                SELECT_RANGE,
+                                ACCOUNT_READER,
+                                fromId,
+                                toId)));
+                    }
+                    return null;
+                });
+
+                for (long from = minId; from <= horizon; from += rangeSize) {
+                    for (Account account : ranges.take().get()) {
+                        action.accept(account);
+                        count++;
+                    }
+                }
+                return count;
+            } finally {
+                // stops the fetching when the action or a fetch failed, otherwise there's nothing left
+                dispatcher.shutdownNow();
+                fetchers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Accounts with a balance in range, keyset paged over the account_balance index. Positions use the same keys as
+     * the JPA version, balanceMinor and id.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
+    public Window<Account> getAccountsByBalance(BigDecimal minBalance, BigDecimal maxBalance, KeysetScrollPosition position, int pageSize) {
+        final var keys = position.getKeys();
+        final var afterBalanceMinor = keys.isEmpty() ? Long.MIN_VALUE : ((Number) keys.get("balanceMinor")).longValue();
+        // one more than asked for tells whether there is a next page
+        final var accounts = jdbcTemplate.query(
+                SELECT_BY_BALANCE,
+                ACCOUNT_READER,
+                Math.max(toMinor(minBalance), afterBalanceMinor),
+                toMinor(maxBalance),
+                afterBalanceMinor,
+                afterBalanceMinor,
+                keys.isEmpty() ? 0L : ((Number) keys.get("id")).longValue(),
+                pageSize + 1);
+        return window(accounts, pageSize, account -> Map.of("balanceMinor", account.getBalanceMinor(), "id", account.getId()));
+    }
+
+    /**
+     * Accounts created in [from, to), keyset paged over the account_timestamp index.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
+    public Window<Account> getAccountsCreatedBetween(Instant from, Instant to, KeysetScrollPosition position, int pageSize) {
+        final var keys = position.getKeys();
+        final var afterTimestamp = keys.isEmpty() ? from : (Instant) keys.get("timestamp");
+        final var accounts = jdbcTemplate.query(
+                SELECT_CREATED_BETWEEN,
+                (rs, rowNum) -> {
+                    final var account = AccountReader.read(rs);
+                    // the column right after the ones of the reader
+                    account.setTimestamp(rs.getTimestamp(4).toInstant());
+                    return account;
+                },
+                Timestamp.from(afterTimestamp.isBefore(from) ? from : afterTimestamp),
+                Timestamp.from(to),
+                Timestamp.from(afterTimestamp),
+                Timestamp.from(afterTimestamp),
+                keys.isEmpty() ? 0L : ((Number) keys.get("id")).longValue(),
+                pageSize + 1);
+        return window(accounts, pageSize, account -> Map.of("timestamp", account.getTimestamp(), "id", account.getId()));
+    }
+
+    private static Window<Account> window(List<Account> accounts, int pageSize, Function<Account, Map<String, Object>> keys) {
+        final var items = accounts.subList(0, Math.min(pageSize, accounts.size()));
+        return Window.from(items, i -> ScrollPosition.forward(keys.apply(items.get(i))), accounts.size() > pageSize);
+    }
+}
@@ -0,0 +1,32 @@
+package com.mcnealysoftware.readcommitted.account;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * IDs split up for IN lists, the same for every repository of this module.
+ */
+final class IdChunks {
+
+    /**
+     * Most IDs sent in one IN list, keeps the statement and its plan small.
+     */
+    static final int IN_CHUNK_SIZE = 500;
+
+    private IdChunks() {
+    }
+
+    /**
+     * @return The distinct IDs, in the order they came, at most IN_CHUNK_SIZE per chunk.
+     */
+    static List<List<Long>> of(Collection<Long> accountIds) {
+        final var ids = new ArrayList<>(new LinkedHashSet<>(accountIds));
+        final var chunks = new ArrayList<List<Long>>();
+        for (int from = 0; from < ids.size(); from += IN_CHUNK_SIZE) {
+            chunks.add(ids.subList(from, Math.min(from + IN_CHUNK_SIZE, ids.size())));
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,5 @@
+-- Every ALTER commits on its own in MySQL, so the old column is only dropped once the new one is filled. A failure
+-- part way leaves balance in place with the data it had, never unscaled values under the new name.
+ALTER TABLE account ADD COLUMN balance_minor BIGINT NOT NULL DEFAULT 0;
+UPDATE account SET balance_minor = ROUND(COALESCE(balance, 0) * 100);
+ALTER TABLE account DROP COLUMN balance;
@@ -0,0 +1,122 @@
+package com.mcnealysoftware.readcommitted;
+
+import com.mcnealysoftware.readcommitted.account.AccountRepositoryJdbc;
+import com.mcnealysoftware.slowoperationlog.SlowOperationLog;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.mysql.MySQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Testcontainers
+public class SlowOperationLogConfigurationTest {
+
+    @Container
+    private static final MySQLContainer database = new MySQLContainer(DockerImageName.parse("mysql:8.0.36"));
+    private static final Path logDirectory = createLogDirectory();
+    @Autowired
+    AccountRepositoryJdbc dao;
+    @Autowired
+    DataSource dataSource;
+
+    private static Path createLogDirectory() {
+        try {
+            return Files.createTempDirectory("slow-operations");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void databaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", database::getJdbcUrl);
+        registry.add("spring.datasource.username", database::getUsername);
+        registry.add("spring.datasource.password", database::getPassword);
+        registry.add("spring.datasource.driver-class-name", database::getDriverClassName);
+        // everything is slow with a threshold of zero
+        registry.add("account.slow-operation-log.enabled", () -> "true");
+        registry.add("account.slow-operation-log.threshold", () -> "PT0S");
+        registry.add("account.slow-operation-log.file", () -> logDirectory.resolve("slow.%g.log").toString());
+    }
+
+    @BeforeEach
+    void setUp() {
+        final var config = new HikariConfig();
+        config.setJdbcUrl(database.getJdbcUrl());
+        config.setUsername(database.getUsername());
+        config.setPassword(database.getPassword());
+        config.setDriverClassName(database.getDriverClassName());
+        try (var datasource = new HikariDataSource(config)) {
+            final var flyway = Flyway.configure()
+                    .dataSource(datasource).locations("classpath:schema").load();
+            flyway.migrate();
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        final var config = new HikariConfig();
+        config.setJdbcUrl(database.getJdbcUrl());
+        config.setUsername(database.getUsername());
+        config.setPassword(database.getPassword());
+        config.setDriverClassName(database.getDriverClassName());
+        try (var datasource = new HikariDataSource(config)) {
+            try (var connection = datasource.getConnection()) {
+                connection.createStatement().execute("DROP TABLE account");
+                connection.createStatement().execute("DROP TABLE flyway_schema_history");
+            }
+        }
+    }
+
+    @Test
+    void slowOperationLogConfigurationTest() throws IOException, InterruptedException {
+        assertTrue(Proxy.isProxyClass(dataSource.getClass()));
+
+        dao.createAccount("Alice", BigDecimal.valueOf(1000L));
+
+        // written once the plan is captured, on a thread of its own
+        final var file = logDirectory.resolve("slow.0.log");
+        List<String> lines = List.of();
+        for (int i = 0; i < 100 && lines.stream().noneMatch(line -> line.contains("INSERT INTO account")); i++) {
+            Thread.sleep(100);
+            lines = Files.exists(file) ? Files.readAllLines(file) : List.of();
+        }
+        assertTrue(lines.stream().anyMatch(line -> line.contains("\"sql\":\"INSERT INTO account (name, balance_minor) VALUES (?, ?)\"")), "lines: " + lines);
+    }
+
+    @Test
+    void slowOperationLogConfigurationTestDisabled() {
+        new ApplicationContextRunner()
+                .withUserConfiguration(SlowOperationLogConfiguration.class)
+                .withBean(DataSource.class, SimpleDriverDataSource::new)
+                .run(context -> {
+                    assertFalse(context.containsBean("slowOperationLog"));
+                    assertTrue(context.getBeansOfType(SlowOperationLog.class).isEmpty());
+                    assertFalse(Proxy.isProxyClass(context.getBean(DataSource.class).getClass()));
+                });
+    }
+}
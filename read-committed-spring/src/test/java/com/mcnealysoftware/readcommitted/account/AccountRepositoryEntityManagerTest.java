@@ -142,4 +142,9 @@ public class AccountRepositoryEntityManagerTest {
             assertEquals(t.get().get(0), t.get().get(1));
         }
     }
+
+    @Test
+    void getBalancesTest() {
+        GetBalancesTests.getBalancesTest(dao::createAccount, dao::getBalances);
+    }
 }
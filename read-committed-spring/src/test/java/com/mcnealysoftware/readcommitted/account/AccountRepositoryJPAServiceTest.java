@@ -8,6 +8,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.testcontainers.junit.jupiter.Container;
@@ -17,6 +19,7 @@ import org.testcontainers.utility.DockerImageName;
 
 import java.math.BigDecimal;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.*;
@@ -142,4 +145,36 @@ public class AccountRepositoryJPAServiceTest {
             assertEquals(t.get().get(0), t.get().get(1));
         }
     }
+
+    @Test
+    void getBalancesTest() {
+        GetBalancesTests.getBalancesTest(dao::createAccount, dao::getBalances);
+    }
+
+    @Test
+    void getAccountsByBalanceTest() {
+        for (int i = 0; i < 25; i++) {
+            dao.createAccount("Account " + i, BigDecimal.valueOf(i % 5));
+        }
+
+        final var accounts = new ArrayList<Account>();
+        ScrollPosition position = ScrollPosition.keyset();
+        Window<Account> window;
+        do {
+            window = dao.getAccountsByBalance(BigDecimal.ONE, BigDecimal.valueOf(3), position, 4);
+            window.forEach(accounts::add);
+            if (!window.isEmpty()) {
+                position = window.positionAt(window.size() - 1);
+            }
+        } while (window.hasNext());
+
+        // balances 1, 2 and 3, five accounts each, in balance order without repeats
+        assertEquals(15, accounts.size());
+        assertEquals(15, accounts.stream().map(Account::getId).distinct().count());
+        for (int i = 1; i < accounts.size(); i++) {
+            assertTrue(accounts.get(i - 1).getBalanceMinor() <= accounts.get(i).getBalanceMinor());
+        }
+        assertEquals(0, BigDecimal.ONE.compareTo(accounts.getFirst().getBalance()));
+        assertEquals(0, BigDecimal.valueOf(3).compareTo(accounts.getLast().getBalance()));
+    }
 }
@@ -0,0 +1,40 @@
+package com.mcnealysoftware.readcommitted.account;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The getBalances test every repository of this module runs, more IDs than fit one IN list, with a duplicate and one
+ * that doesn't exist.
+ */
+final class GetBalancesTests {
+
+    private GetBalancesTests() {
+    }
+
+    static void getBalancesTest(BiFunction<String, BigDecimal, Long> createAccount,
+                                Function<Collection<Long>, Map<Long, BigDecimal>> getBalances) {
+        final var ids = new ArrayList<Long>();
+        for (int i = 0; i < IdChunks.IN_CHUNK_SIZE + 10; i++) {
+            ids.add(createAccount.apply("Account " + i, BigDecimal.valueOf(i)));
+        }
+        ids.add(ids.getFirst());
+        ids.add(-1L);
+
+        final var balances = getBalances.apply(ids);
+        assertEquals(IdChunks.IN_CHUNK_SIZE + 10, balances.size());
+        assertEquals(0, BigDecimal.ZERO.compareTo(balances.get(ids.getFirst())));
+        assertEquals(0, BigDecimal.valueOf(IdChunks.IN_CHUNK_SIZE + 9).compareTo(balances.get(ids.get(IdChunks.IN_CHUNK_SIZE + 9))));
+        assertFalse(balances.containsKey(-1L));
+        assertTrue(getBalances.apply(List.of()).isEmpty());
+    }
+}
@@ -18,6 +18,13 @@ repositories {
 
 dependencies {
     implementation("com.mysql:mysql-connector-j:9.5.0")
+    implementation(project(":minor-units"))
+    implementation(project(":slow-operation-log"))
+    // migrations every module runs the same, picked up from classpath:schema next to the module's own
+    runtimeOnly(project(":account-schema"))
+    // generates the index-based readers of @RowMapped types, the annotations are gone after compiling
+    compileOnly(project(":row-mapper-processor"))
+    annotationProcessor(project(":row-mapper-processor"))
 
     testImplementation(platform("org.junit:junit-bom:5.13.4"))
     // junit-platform-launcher required https://github.com/gradle/gradle/issues/34512
@@ -32,6 +39,12 @@ dependencies {
     implementation("org.flywaydb:flyway-mysql:11.18.0")
 }
 
+// BalanceSnapshot aggregates with the Vector API, still incubating
+tasks.withType<JavaCompile> {
+    options.compilerArgs.add("--add-modules=jdk.incubator.vector")
+}
+
 tasks.test {
     useJUnitPlatform()
+    jvmArgs("--add-modules=jdk.incubator.vector")
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.mcnealysoftware.readcommitted;
+
+import java.util.List;
+
+/**
+ * A page read by seeking past the last row of the previous one, instead of skipping rows with OFFSET.
+ *
+ * @param next Where the next page starts, null when this is the last page.
+ */
+public record KeysetPage<T, K>(List<T> items, K next) {
+}
@@ -1,6 +1,13 @@
 package com.mcnealysoftware.readcommitted.account;
 
+import com.mcnealysoftware.minorunits.MinorUnits;
+import com.mcnealysoftware.rowmapper.RowMapped;
+
 import java.math.BigDecimal;
 
-public record Account(Long id, String name, BigDecimal balance) {
+@RowMapped
+public record Account(Long id, String name, long balanceMinor) {
+    public BigDecimal balance() {
+        return MinorUnits.fromMinor(balanceMinor);
+    }
 }
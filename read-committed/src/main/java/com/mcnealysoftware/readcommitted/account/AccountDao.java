@@ -1,12 +1,26 @@
 package com.mcnealysoftware.readcommitted.account;
 
+import com.mcnealysoftware.readcommitted.KeysetPage;
 import com.mcnealysoftware.readcommitted.Page;
+import com.mcnealysoftware.rowmapper.SelectOf;
 
 import javax.sql.DataSource;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static com.mcnealysoftware.minorunits.MinorUnits.fromMinor;
+import static com.mcnealysoftware.minorunits.MinorUnits.toMinor;
 
 /**
  * DAO for accounts and their balances. Allows for creating accounts, getting balances, and moving money between accounts.
@@ -16,6 +30,35 @@ import java.sql.Statement;
  */
 public record AccountDao(DataSource dataSource, int isolationLevel) {
 
+    /**
+     * Most IDs sent in one IN list, keeps the statement and its plan small.
+     */
+    static final int IN_CHUNK_SIZE = 500;
+
+    // account reads, their select lists are checked against the generated AccountReader when compiling
+    @SelectOf(Account.class)
+    private static final String SELECT_PAGE = "SELECT id, name, balance_minor FROM account LIMIT ? OFFSET ?";
+    @SelectOf(Account.class)
+    private static final String SELECT_AFTER = "SELECT id, name, balance_minor FROM account WHERE id > ? ORDER BY id LIMIT ?";
+    // keyset reads, the lower bound is the key of the previous page so the index range starts there. MySQL doesn't
+    // make a range out of (a, b) > (?, ?), the expanded form only narrows what the bound already seeks to
+    @SelectOf(Account.class)
+    private static final String SELECT_BY_BALANCE = "SELECT id, name, balance_minor FROM account WHERE balance_minor BETWEEN ? AND ? AND (balance_minor > ? OR (balance_minor = ? AND id > ?)) ORDER BY balance_minor, id LIMIT ?";
+    @SelectOf(Account.class)
+    private static final String SELECT_CREATED_BETWEEN = "SELECT id, name, balance_minor, timestamp FROM account WHERE timestamp >= ? AND timestamp < ? AND (timestamp > ? OR (timestamp = ? AND id > ?)) ORDER BY timestamp, id LIMIT ?";
+
+    /**
+     * Position in the account_balance index, the balance of the last account on a page and its ID.
+     */
+    public record BalanceKey(long balanceMinor, long id) {
+    }
+
+    /**
+     * Position in the account_timestamp index.
+     */
+    public record TimestampKey(Instant timestamp, long id) {
+    }
+
     /**
      * Creates a new account.
      *
@@ -28,9 +71,9 @@ public record AccountDao(DataSource dataSource, int isolationLevel) {
             connection.setAutoCommit(false);
             connection.setReadOnly(false);
             connection.setTransactionIsolation(isolationLevel);
-            final var statement = connection.prepareStatement("INSERT INTO account (name, balance) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS);
+            final var statement = connection.prepareStatement("INSERT INTO account (name, balance_minor) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS);
             statement.setString(1, name);
-            statement.setBigDecimal(2, balance);
+            statement.setLong(2, toMinor(balance));
             statement.executeUpdate();
             final var resultSet = statement.getGeneratedKeys();
             resultSet.next();
@@ -46,19 +89,61 @@ public record AccountDao(DataSource dataSource, int isolationLevel) {
      * Gets the balance of an account.
      */
     public BigDecimal getBalance(long accountId) {
+        return fromMinor(getBalanceMinor(accountId));
+    }
+
+    /**
+     * Gets the balance of an account in minor units.
+     */
+    public long getBalanceMinor(long accountId) {
         try (final Connection connection = dataSource.getConnection()) {
             connection.setAutoCommit(false);
             connection.setReadOnly(true);
             connection.setTransactionIsolation(isolationLevel);
 
-            final var statement = connection.prepareStatement("SELECT balance FROM account WHERE id = ?");
+            final var statement = connection.prepareStatement("SELECT balance_minor FROM account WHERE id = ?");
             statement.setLong(1, accountId);
             final var resultSet = statement.executeQuery();
             resultSet.next();
-            final var id = resultSet.getBigDecimal(1);
+            final var balance = resultSet.getLong(1);
 
             connection.commit();
-            return id;
+            return balance;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Gets the balances of many accounts at once, in one transaction and one round trip per chunk of IDs, instead of
+     * a transaction per account. Accounts that don't exist are left out of the result.
+     */
+    public Map<Long, BigDecimal> getBalances(Collection<Long> accountIds) {
+        final var ids = new ArrayList<>(new LinkedHashSet<>(accountIds));
+        final var balances = new HashMap<Long, BigDecimal>(ids.size() * 2);
+        if (ids.isEmpty()) {
+            return balances;
+        }
+        try (final Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            connection.setTransactionIsolation(isolationLevel);
+
+            for (int from = 0; from < ids.size(); from += IN_CHUNK_SIZE) {
+                final var chunk = ids.subList(from, Math.min(from + IN_CHUNK_SIZE, ids.size()));
+                final var placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+                final var statement = connection.prepareStatement("SELECT id, balance_minor FROM account WHERE id IN (" + placeholders + ")");
+                for (int i = 0; i < chunk.size(); i++) {
+                    statement.setLong(i + 1, chunk.get(i));
+                }
+                final var resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    balances.put(resultSet.getLong(1), fromMinor(resultSet.getLong(2)));
+                }
+            }
+
+            connection.commit();
+            return balances;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -74,17 +159,14 @@ public record AccountDao(DataSource dataSource, int isolationLevel) {
             connection.setReadOnly(true);
             connection.setTransactionIsolation(isolationLevel);
 
-            final var statement = connection.prepareStatement("SELECT id, name, balance FROM account LIMIT ? OFFSET ?");
+            final var statement = connection.prepareStatement(SELECT_PAGE);
             statement.setInt(1, pageSize);
             statement.setInt(2, page * pageSize);
             final var resultSet = statement.executeQuery();
 
             final var accounts = new java.util.ArrayList<Account>();
             while (resultSet.next()) {
-                final var id = resultSet.getLong(1);
-                final var name = resultSet.getString(2);
-                final var balance = resultSet.getBigDecimal(3);
-                accounts.add(new Account(id, name, balance));
+                accounts.add(AccountReader.read(resultSet));
             }
 
             final var sizeStatement = connection.prepareStatement("SELECT COUNT(*) FROM account");
@@ -98,4 +180,145 @@ public record AccountDao(DataSource dataSource, int isolationLevel) {
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Accounts in ID order, starting after the last one of the previous page. Unlike the OFFSET in getAccounts, the
+     * ID range lets MySQL skip the partitions that are entirely before it.
+     *
+     * @param afterId Next key of the previous page, 0 for the first page.
+     */
+    public KeysetPage<Account, Long> getAccountsAfter(long afterId, int pageSize) {
+        try (final Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            connection.setTransactionIsolation(isolationLevel);
+
+            final var statement = connection.prepareStatement(SELECT_AFTER);
+            statement.setLong(1, afterId);
+            statement.setInt(2, pageSize + 1);
+            final var resultSet = statement.executeQuery();
+
+            final var accounts = new ArrayList<Account>();
+            while (resultSet.next()) {
+                accounts.add(AccountReader.read(resultSet));
+            }
+
+            connection.commit();
+            if (accounts.size() <= pageSize) {
+                return new KeysetPage<>(accounts, null);
+            }
+            final var items = List.copyOf(accounts.subList(0, pageSize));
+            return new KeysetPage<>(items, items.getLast().id());
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Gets the total balance of all accounts, summing every partition at the same time on its own connection.
+     * NOTE: Each partition is read in its own transaction, a transfer between two partitions that commits in between
+     * can be counted on one side only.
+     */
+    public BigDecimal getTotalBalancesParallel() {
+        final var totals = new AccountPartitions(dataSource).forEachPartition(partition -> getPartitionTotalBalanceMinor(partition.name()));
+        return fromMinor(totals.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    private long getPartitionTotalBalanceMinor(String partition) {
+        try (final Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            connection.setTransactionIsolation(isolationLevel);
+
+            final var statement = connection.prepareStatement("SELECT COALESCE(SUM(balance_minor), 0) FROM account PARTITION (" + partition + ")");
+            final var resultSet = statement.executeQuery();
+            resultSet.next();
+            final var total = resultSet.getLong(1);
+
+            connection.commit();
+            return total;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Accounts with a balance between minBalance and maxBalance, ordered by balance. Reads a range of the
+     * account_balance index that starts at the balance the previous page ended with, so page 1000 costs the same as
+     * page 1.
+     *
+     * @param after Next key of the previous page, null for the first page.
+     */
+    public KeysetPage<Account, BalanceKey> getAccountsByBalance(BigDecimal minBalance, BigDecimal maxBalance, BalanceKey after, int pageSize) {
+        try (final Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            connection.setTransactionIsolation(isolationLevel);
+
+            final var statement = connection.prepareStatement(SELECT_BY_BALANCE);
+            final var afterBalanceMinor = after == null ? Long.MIN_VALUE : after.balanceMinor();
+            statement.setLong(1, Math.max(toMinor(minBalance), afterBalanceMinor));
+            statement.setLong(2, toMinor(maxBalance));
+            statement.setLong(3, afterBalanceMinor);
+            statement.setLong(4, afterBalanceMinor);
+            statement.setLong(5, after == null ? 0L : after.id());
+            // one more than asked for tells whether there is a next page
+            statement.setInt(6, pageSize + 1);
+            final var resultSet = statement.executeQuery();
+
+            final var accounts = new ArrayList<Account>();
+            while (resultSet.next()) {
+                accounts.add(AccountReader.read(resultSet));
+            }
+
+            connection.commit();
+            if (accounts.size() <= pageSize) {
+                return new KeysetPage<>(accounts, null);
+            }
+            final var items = List.copyOf(accounts.subList(0, pageSize));
+            final var last = items.getLast();
+            return new KeysetPage<>(items, new BalanceKey(last.balanceMinor(), last.id()));
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Accounts created in [from, to), oldest first, keyset paged over the account_timestamp index.
+     *
+     * @param after Next key of the previous page, null for the first page.
+     */
+    public KeysetPage<Account, TimestampKey> getAccountsCreatedBetween(Instant from, Instant to, TimestampKey after, int pageSize) {
+        try (final Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            connection.setTransactionIsolation(isolationLevel);
+
+            final var statement = connection.prepareStatement(SELECT_CREATED_BETWEEN);
+            final var afterTimestamp = after == null ? from : after.timestamp();
+            statement.setTimestamp(1, Timestamp.from(afterTimestamp.isBefore(from) ? from : afterTimestamp));
+            statement.setTimestamp(2, Timestamp.from(to));
+            statement.setTimestamp(3, Timestamp.from(afterTimestamp));
+            statement.setTimestamp(4, Timestamp.from(afterTimestamp));
+            statement.setLong(5, after == null ? 0L : after.id());
+            statement.setInt(6, pageSize + 1);
+            final var resultSet = statement.executeQuery();
+
+            final var accounts = new ArrayList<Account>();
+            final var timestamps = new ArrayList<Instant>();
+            while (resultSet.next()) {
+                accounts.add(AccountReader.read(resultSet));
+                timestamps.add(resultSet.getTimestamp(4).toInstant());
+            }
+
+            connection.commit();
+            if (accounts.size() <= pageSize) {
+                return new KeysetPage<>(accounts, null);
+            }
+            final var items = List.copyOf(accounts.subList(0, pageSize));
+            return new KeysetPage<>(items, new TimestampKey(timestamps.get(pageSize - 1), items.getLast().id()));
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -0,0 +1,204 @@
+package com.mcnealysoftware.readcommitted.account;
+
+import com.mcnealysoftware.minorunits.MinorUnits;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Exports accounts to files. Rows are streamed from the server one at a time instead of read into a list, and
+ * encoded straight from the bytes of the result set into a direct buffer, which is written to a FileChannel whenever
+ * it is full. Neither a String nor a BigDecimal is made per row.
+ * <p>
+ * Every file is exported in a transaction of its own, with {@link #exportParallel} each range is its own snapshot.
+ *
+ * @param dataSource     Database configuration that creates Connections.
+ * @param isolationLevel Isolation level of the export.
+ */
+public record AccountExporter(DataSource dataSource, int isolationLevel) {
+
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final byte[] NO_NAME = new byte[0];
+
+    public enum Format {
+        /**
+         * An {@code id,name,balance} line per account, the balance in major units, like {@code 1000.50}. A name is in
+         * double quotes if it has a comma, a double quote or a line break, with double quotes doubled.
+         */
+        CSV("csv"),
+        /**
+         * Per account a long with the ID, an int with the length of the UTF-8 encoded name, the name, and a long with
+         * the balance in minor units, big-endian, as read with a DataInputStream.
+         */
+        BINARY("bin");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    /**
+     * Exports the accounts with fromId &lt;= id &lt; toId, in ID order.
+     *
+     * @return Number of accounts exported.
+     */
+    public long export(Path file, Format format, long fromId, long toId) {
+        try (final Connection connection = dataSource.getConnection();
+             final var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            connection.setTransactionIsolation(isolationLevel);
+
+            final var statement = connection.prepareStatement("SELECT id, name, balance_minor FROM account WHERE id >= ? AND id < ? ORDER BY id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // streams the rows instead of reading the whole result first
+            statement.setFetchSize(Integer.MIN_VALUE);
+            statement.setLong(1, fromId);
+            statement.setLong(2, toId);
+            final var resultSet = statement.executeQuery();
+
+            final var buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            final var digits = new byte[20];
+            var rows = 0L;
+            while (resultSet.next()) {
+                final var id = resultSet.getLong(1);
+                final var name = Objects.requireNonNullElse(resultSet.getBytes(2), NO_NAME);
+                final var balanceMinor = resultSet.getLong(3);
+
+                // worst case, every byte of the name doubled
+                if (buffer.remaining() < 2 * name.length + 64) {
+                    write(channel, buffer);
+                }
+                if (format == Format.CSV) {
+                    putCsv(buffer, digits, id, name, balanceMinor);
+                } else {
+                    buffer.putLong(id).putInt(name.length).put(name).putLong(balanceMinor);
+                }
+                rows++;
+            }
+            write(channel, buffer);
+            channel.force(false);
+
+            connection.commit();
+            return rows;
+        } catch (SQLException | IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Splits the IDs of all accounts into ranges of about the same size, and exports each range into a file of its
+     * own in directory at the same time, each on its own virtual thread. Files are named after their range, like
+     * accounts-1-5001.csv.
+     *
+     * @return Number of accounts exported into each file, in ID order.
+     */
+    public Map<Path, Long> exportParallel(Path directory, Format format, int files) {
+        final long minId;
+        final long maxId;
+        try (final Connection connection = dataSource.getConnection()) {
+            connection.setReadOnly(true);
+            final var resultSet = connection.createStatement().executeQuery("SELECT COALESCE(MIN(id), 1), COALESCE(MAX(id), 0) FROM account");
+            resultSet.next();
+            minId = resultSet.getLong(1);
+            maxId = resultSet.getLong(2);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        final var rangeSize = Math.max(1L, (maxId - minId + files) / files);
+        final var futures = new LinkedHashMap<Path, Future<Long>>();
+        try (final var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long fromId = minId; fromId <= maxId; fromId += rangeSize) {
+                final var from = fromId;
+                final var to = Math.min(fromId + rangeSize, maxId + 1);
+                final var file = directory.resolve("accounts-" + from + "-" + to + "." + format.extension);
+                futures.put(file, executor.submit(() -> export(file, format, from, to)));
+            }
+
+            final var rows = new LinkedHashMap<Path, Long>();
+            for (Map.Entry<Path, Future<Long>> future : futures.entrySet()) {
+                rows.put(future.getKey(), future.getValue().get());
+            }
+            return rows;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void putCsv(ByteBuffer buffer, byte[] digits, long id, byte[] name, long balanceMinor) {
+        putDigits(buffer, digits, id, 1);
+        buffer.put((byte) ',');
+
+        var quote = false;
+        for (byte b : name) {
+            if (b == ',' || b == '"' || b == '\r' || b == '\n') {
+                quote = true;
+                break;
+            }
+        }
+        if (quote) {
+            buffer.put((byte) '"');
+            for (byte b : name) {
+                if (b == '"') {
+                    buffer.put((byte) '"');
+                }
+                buffer.put(b);
+            }
+            buffer.put((byte) '"');
+        } else {
+            buffer.put(name);
+        }
+        buffer.put((byte) ',');
+
+        if (balanceMinor < 0) {
+            buffer.put((byte) '-');
+        }
+        // divided first, Math.abs of Long.MIN_VALUE itself would overflow
+        putDigits(buffer, digits, Math.abs(balanceMinor / 100), 1);
+        buffer.put((byte) '.');
+        putDigits(buffer, digits, Math.abs(balanceMinor % 100), MinorUnits.SCALE);
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Puts a value that isn't negative in ASCII, with leading zeros up to minDigits.
+     */
+    private static void putDigits(ByteBuffer buffer, byte[] digits, long value, int minDigits) {
+        var start = digits.length;
+        do {
+            digits[--start] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0 || digits.length - start < minDigits);
+        buffer.put(digits, start, digits.length - start);
+    }
+}
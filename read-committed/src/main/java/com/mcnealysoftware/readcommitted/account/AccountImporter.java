@@ -0,0 +1,187 @@
+package com.mcnealysoftware.readcommitted.account;
+
+import com.mcnealysoftware.minorunits.MinorUnits;
+import com.mysql.cj.jdbc.JdbcStatement;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static com.mcnealysoftware.minorunits.MinorUnits.fromMinor;
+
+/**
+ * Imports accounts in bulk with LOAD DATA LOCAL INFILE, the rows are streamed from an InputStream to the server
+ * through the driver's local infile hook, never held in memory or sent as one INSERT each. They are loaded into a
+ * temporary table first, checked there, and then merged into account with one INSERT ... SELECT, so an import is
+ * all or nothing.
+ * <p>
+ * LOAD DATA LOCAL has to be allowed on both ends, allowLoadLocalInfile=true on the connections of this DataSource and
+ * local_infile=ON on the server. Better a DataSource of its own than turning it on for the whole application.
+ *
+ * @param dataSource     Database configuration that creates Connections.
+ * @param isolationLevel Isolation level of the merge.
+ */
+public record AccountImporter(DataSource dataSource, int isolationLevel) {
+
+    /**
+     * Balances in major units with at most {@link MinorUnits#SCALE} decimals, and a whole balance in minor units has
+     * to fit a BIGINT.
+     */
+    private static final String VALID_BALANCE = "^-?[0-9]{1,16}([.][0-9]{1,2})?$";
+
+    /**
+     * Imports accounts from CSV, a {@code name,balance} line per account, no header. A name can be in double quotes,
+     * then it may have commas, and double quotes doubled. The balance is in major units, like {@code 1000.50}.
+     *
+     * @return Number of accounts imported.
+     * @throws IllegalArgumentException If a line isn't an account, nothing is imported then.
+     */
+    public long importCsv(InputStream csv) {
+        return load(csv, """
+                LOAD DATA LOCAL INFILE 'accounts.csv' INTO TABLE account_import
+                    CHARACTER SET utf8mb4
+                    FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '"' ESCAPED BY ''
+                    LINES TERMINATED BY '\\n'
+                    (name, @balance) SET balance = TRIM(TRAILING '\\r' FROM @balance)""");
+    }
+
+    /**
+     * Imports accounts in a compact binary format, as written with a DataOutputStream. Per account a
+     * {@code writeInt} with the length of the UTF-8 encoded name, the name, and a {@code writeLong} with the balance
+     * in minor units, until the end of the stream.
+     *
+     * @return Number of accounts imported, nothing is imported if a record isn't an account.
+     */
+    public long importBinary(InputStream binary) {
+        return load(new BinaryAccounts(binary), """
+                LOAD DATA LOCAL INFILE 'accounts.tsv' INTO TABLE account_import
+                    CHARACTER SET utf8mb4
+                    (name, balance)""");
+    }
+
+    private long load(InputStream accounts, String loadData) {
+        try (final Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(false);
+            connection.setTransactionIsolation(isolationLevel);
+            try (final var statement = connection.createStatement()) {
+                // everything as text, a bad value is found when checking instead of turned into a warning and a 0
+                statement.execute("CREATE TEMPORARY TABLE account_import (line BIGINT PRIMARY KEY AUTO_INCREMENT, name TEXT, balance TEXT)");
+                try {
+                    statement.unwrap(JdbcStatement.class).setLocalInfileInputStream(accounts);
+                    statement.executeUpdate(loadData);
+                    // a line with too few or too many fields is only a warning
+                    final var warnings = statement.getWarnings();
+                    if (warnings != null) {
+                        throw new IllegalArgumentException("Not an account: " + warnings.getMessage());
+                    }
+                    final var invalid = statement.executeQuery("SELECT MIN(line) FROM account_import WHERE name IS NULL OR CHAR_LENGTH(name) > 255 OR balance IS NULL OR balance NOT REGEXP '" + VALID_BALANCE + "'");
+                    invalid.next();
+                    final var line = invalid.getLong(1);
+                    if (!invalid.wasNull()) {
+                        throw new IllegalArgumentException("Not an account, at line " + line);
+                    }
+
+                    final var imported = statement.executeUpdate("INSERT INTO account (name, balance_minor) SELECT name, CAST(CAST(balance AS DECIMAL(19, 2)) * 100 AS SIGNED) FROM account_import ORDER BY line");
+                    connection.commit();
+                    return imported;
+                } catch (SQLException | RuntimeException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    statement.execute("DROP TEMPORARY TABLE account_import");
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Turns the binary format into the tab separated lines LOAD DATA reads by default, one account at a time.
+     */
+    private static class BinaryAccounts extends InputStream {
+
+        /**
+         * 255 characters of up to 4 bytes.
+         */
+        private static final int MAX_NAME_BYTES = 255 * 4;
+
+        private final PushbackInputStream in;
+        private final DataInputStream data;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        private byte[] buffer = new byte[0];
+        private int position;
+
+        BinaryAccounts(InputStream in) {
+            this.in = new PushbackInputStream(in);
+            this.data = new DataInputStream(this.in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position == buffer.length && !nextAccount()) {
+                return -1;
+            }
+            return buffer[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position == buffer.length && !nextAccount()) {
+                return -1;
+            }
+            final var n = Math.min(len, buffer.length - position);
+            System.arraycopy(buffer, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        private boolean nextAccount() throws IOException {
+            // the end of the stream is only fine between accounts, within one the DataInputStream throws
+            final var first = in.read();
+            if (first < 0) {
+                return false;
+            }
+            in.unread(first);
+
+            final var nameLength = data.readInt();
+            if (nameLength < 0 || nameLength > MAX_NAME_BYTES) {
+                throw new IOException("Not an account, name of " + nameLength + " bytes");
+            }
+            final var name = new byte[nameLength];
+            data.readFully(name);
+            final var balanceMinor = data.readLong();
+
+            line.reset();
+            for (byte b : name) {
+                switch (b) {
+                    case '\\' -> line.writeBytes(new byte[]{'\\', '\\'});
+                    case '\t' -> line.writeBytes(new byte[]{'\\', 't'});
+                    case '\n' -> line.writeBytes(new byte[]{'\\', 'n'});
+                    default -> line.write(b);
+                }
+            }
+            line.write('\t');
+            line.writeBytes(fromMinor(balanceMinor).toPlainString().getBytes(StandardCharsets.US_ASCII));
+            line.write('\n');
+            buffer = line.toByteArray();
+            position = 0;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
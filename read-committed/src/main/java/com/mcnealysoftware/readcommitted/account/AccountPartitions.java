@@ -0,0 +1,145 @@
+package com.mcnealysoftware.readcommitted.account;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Maintenance of the partitions of the account table, see V2026_10_23_1__Account_Partitions.sql. Every partition is
+ * named after its upper bound, p_max has none. Operations on one partition leave the rows of the others alone.
+ * <p>
+ * These are DDL statements, MySQL commits them on its own, so there is no transaction and no isolation level here.
+ *
+ * @param dataSource Database configuration that creates Connections.
+ */
+public record AccountPartitions(DataSource dataSource) {
+
+    /**
+     * @param fromId        Lowest ID that can be in this partition.
+     * @param toId          IDs are below this one, Long.MAX_VALUE for p_max.
+     * @param estimatedRows From the table statistics, not exact.
+     */
+    public record Partition(String name, long fromId, long toId, long estimatedRows) {
+    }
+
+    public List<Partition> getPartitions() {
+        try (final Connection connection = dataSource.getConnection()) {
+            final var statement = connection.prepareStatement(
+                    "SELECT PARTITION_NAME, PARTITION_DESCRIPTION, TABLE_ROWS FROM information_schema.PARTITIONS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'account' ORDER BY PARTITION_ORDINAL_POSITION");
+            final var resultSet = statement.executeQuery();
+
+            final var partitions = new ArrayList<Partition>();
+            var fromId = Long.MIN_VALUE;
+            while (resultSet.next()) {
+                final var description = resultSet.getString(2);
+                final var toId = "MAXVALUE".equals(description) ? Long.MAX_VALUE : Long.parseLong(description);
+                partitions.add(new Partition(resultSet.getString(1), fromId, toId, resultSet.getLong(3)));
+                fromId = toId;
+            }
+            return partitions;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Splits the partition that holds boundary in two, IDs below boundary go to a new partition. Only the rows of that
+     * one partition are copied, split p_max ahead of the IDs handed out and it's empty and fast.
+     */
+    public void split(long boundary) {
+        final var partition = getPartition(boundary);
+        if (partition.fromId() == boundary) {
+            return;
+        }
+        final var upperBound = partition.toId() == Long.MAX_VALUE ? "MAXVALUE" : "(" + partition.toId() + ")";
+        execute("ALTER TABLE account REORGANIZE PARTITION " + partition.name() + " INTO ("
+                + "PARTITION p" + boundary + " VALUES LESS THAN (" + boundary + "), "
+                + "PARTITION " + partition.name() + " VALUES LESS THAN " + upperBound + ")");
+    }
+
+    /**
+     * Rebuilds one partition and its indexes, and updates its statistics, instead of the whole table.
+     */
+    public void rebuild(String partition) {
+        final var name = getPartition(partition).name();
+        execute("ALTER TABLE account REBUILD PARTITION " + name);
+        execute("ALTER TABLE account ANALYZE PARTITION " + name);
+    }
+
+    /**
+     * Moves all rows of a partition into a new table of their own, account_archive_ followed by the partition name.
+     * The rows are swapped, not copied, and the partition stays in place empty.
+     *
+     * @return Name of the archive table.
+     */
+    public String archive(String partition) {
+        final var name = getPartition(partition).name();
+        final var archive = "account_archive_" + name;
+        execute("CREATE TABLE " + archive + " LIKE account");
+        execute("ALTER TABLE " + archive + " REMOVE PARTITIONING");
+        execute("ALTER TABLE account EXCHANGE PARTITION " + name + " WITH TABLE " + archive);
+        return archive;
+    }
+
+    /**
+     * Runs a job for every partition at the same time, each on its own virtual thread. Jobs that read a partition with
+     * {@code FROM account PARTITION (name)} only touch that one.
+     *
+     * @return Result of each job by partition name, in partition order.
+     */
+    public <T> Map<String, T> forEachPartition(Function<Partition, T> job) {
+        final var futures = new LinkedHashMap<String, Future<T>>();
+        try (final var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Partition partition : getPartitions()) {
+                futures.put(partition.name(), executor.submit(() -> job.apply(partition)));
+            }
+
+            final var results = new LinkedHashMap<String, T>();
+            for (Map.Entry<String, Future<T>> future : futures.entrySet()) {
+                results.put(future.getKey(), future.getValue().get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private Partition getPartition(long accountId) {
+        return getPartitions().stream()
+                .filter(partition -> partition.fromId() <= accountId && accountId < partition.toId())
+                .findFirst()
+                .orElseThrow();
+    }
+
+    /**
+     * Also keeps names that don't come from information_schema out of the DDL.
+     */
+    private Partition getPartition(String name) {
+        return getPartitions().stream()
+                .filter(partition -> partition.name().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No partition " + name));
+    }
+
+    private void execute(String sql) {
+        try (final Connection connection = dataSource.getConnection()) {
+            connection.createStatement().execute(sql);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
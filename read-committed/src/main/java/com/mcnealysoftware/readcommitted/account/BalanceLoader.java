@@ -0,0 +1,172 @@
+package com.mcnealysoftware.readcommitted.account;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Puts single account lookups from many threads together into one {@code getBalances} call. The first lookup opens a
+ * batch, every lookup within the window joins it, and then all of them are answered with one IN query. Lookups for
+ * the same account in one batch share the result.
+ * <p>
+ * Only lookups that have not been sent yet are shared. A lookup arriving while a batch is at the database waits for
+ * the next one, otherwise it could get a balance read before a transfer it already saw committed.
+ */
+public class BalanceLoader implements AutoCloseable {
+
+    private final Function<Collection<Long>, Map<Long, BigDecimal>> batchLoader;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    // daemon, a loader that is never closed doesn't keep the JVM running
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().factory());
+    private Map<Long, CompletableFuture<BigDecimal>> pending = new HashMap<>();
+    /**
+     * Timer of the pending batch, null while nothing is pending.
+     */
+    private ScheduledFuture<?> window;
+    private boolean closed;
+
+    /**
+     * @param window       How long the first lookup of a batch waits for others to join.
+     * @param maxBatchSize A batch is sent right away once it has this many accounts.
+     */
+    public BalanceLoader(AccountDao dao, Duration window, int maxBatchSize) {
+        this(dao::getBalances, window, maxBatchSize);
+    }
+
+    /**
+     * @param batchLoader Gets the balances of all accounts in a batch, accounts that don't exist are left out.
+     */
+    public BalanceLoader(Function<Collection<Long>, Map<Long, BigDecimal>> batchLoader, Duration window, int maxBatchSize) {
+        this.batchLoader = batchLoader;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Same as {@link AccountDao#getBalance(long)}, but may be answered together with other callers.
+     */
+    public BigDecimal getBalance(long accountId) {
+        try {
+            return load(accountId).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Fails right away once the loader is closed.
+     */
+    public CompletableFuture<BigDecimal> load(long accountId) {
+        lock.lock();
+        try {
+            if (closed) {
+                return CompletableFuture.failedFuture(new IllegalStateException("BalanceLoader is closed"));
+            }
+            var balance = pending.get(accountId);
+            if (balance == null) {
+                balance = new CompletableFuture<>();
+                pending.put(accountId, balance);
+                if (pending.size() >= maxBatchSize) {
+                    final var batch = takePending();
+                    Thread.startVirtualThread(() -> dispatch(batch));
+                } else if (pending.size() == 1) {
+                    final var batch = pending;
+                    try {
+                        window = timer.schedule(() -> closeWindow(batch), windowNanos, TimeUnit.NANOSECONDS);
+                    } catch (RejectedExecutionException e) {
+                        // no timer would ever send it, later lookups of the account must not wait on it
+                        pending.remove(accountId);
+                        balance.completeExceptionally(e);
+                    }
+                }
+            }
+            return balance;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sends what is pending, lookups after this fail.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        timer.shutdown();
+        final var batch = takePending();
+        if (!batch.isEmpty()) {
+            dispatch(batch);
+        }
+    }
+
+    /**
+     * Sends the batch the timer was started for, unless it filled up and was sent before the window closed.
+     */
+    private void closeWindow(Map<Long, CompletableFuture<BigDecimal>> batch) {
+        lock.lock();
+        try {
+            // a timer that was already running when it got cancelled, pending is the next batch by now
+            if (pending != batch) {
+                return;
+            }
+            takePending();
+        } finally {
+            lock.unlock();
+        }
+        Thread.startVirtualThread(() -> dispatch(batch));
+    }
+
+    private Map<Long, CompletableFuture<BigDecimal>> takePending() {
+        lock.lock();
+        try {
+            if (window != null) {
+                window.cancel(false);
+                window = null;
+            }
+            final var batch = pending;
+            pending = new HashMap<>();
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatch(Map<Long, CompletableFuture<BigDecimal>> batch) {
+        final Map<Long, BigDecimal> balances;
+        try {
+            balances = batchLoader.apply(batch.keySet());
+        } catch (RuntimeException e) {
+            batch.values().forEach(balance -> balance.completeExceptionally(e));
+            return;
+        }
+        batch.forEach((accountId, balance) -> {
+            final var value = balances.get(accountId);
+            if (value == null) {
+                balance.completeExceptionally(new IllegalArgumentException("No account " + accountId));
+            } else {
+                balance.complete(value);
+            }
+        });
+    }
+}
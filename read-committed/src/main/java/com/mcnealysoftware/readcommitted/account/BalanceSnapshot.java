@@ -0,0 +1,231 @@
+package com.mcnealysoftware.readcommitted.account;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.math.BigDecimal;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static com.mcnealysoftware.minorunits.MinorUnits.fromMinor;
+
+/**
+ * Balances of all accounts at one point in time, in a memory-mapped file, for totals and scans without going to the
+ * database. The file has two columns, the IDs in ascending order and the balances in minor units at the same
+ * positions, after a header with a magic number and the number of accounts. All longs, little-endian.
+ * <p>
+ * Aggregations go through the balance column with the Vector API, as many balances per instruction as the CPU has
+ * lanes. Sums are plain long additions, like the total in the OffHeapAccountStore.
+ */
+public class BalanceSnapshot implements AutoCloseable {
+
+    private static final long MAGIC = 0x42414c534e415031L;
+    private static final long HEADER_BYTES = 2 * Long.BYTES;
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    /**
+     * @param balanceMinor Balance in minor units.
+     */
+    public record Balance(long id, long balanceMinor) {
+    }
+
+    private final Arena arena = Arena.ofShared();
+    private final long count;
+    private final MemorySegment ids;
+    private final MemorySegment balances;
+
+    private BalanceSnapshot(Path file) {
+        try (final var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final var segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            if (segment.byteSize() < HEADER_BYTES || segment.get(LONG, 0) != MAGIC) {
+                throw new IllegalArgumentException(file + " is not a balance snapshot");
+            }
+            this.count = segment.get(LONG, Long.BYTES);
+            this.ids = segment.asSlice(HEADER_BYTES, count * Long.BYTES);
+            this.balances = segment.asSlice(HEADER_BYTES + count * Long.BYTES, count * Long.BYTES);
+        } catch (IOException e) {
+            arena.close();
+            throw new RuntimeException(e);
+        } catch (RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Maps a snapshot written by {@link #write}. It stays mapped until closed.
+     */
+    public static BalanceSnapshot open(Path file) {
+        return new BalanceSnapshot(file);
+    }
+
+    /**
+     * Writes the balances of all accounts into a new snapshot. The count and the rows are read in one REPEATABLE READ
+     * transaction, so they are from the same point in time, and the rows are streamed, not read into memory first. The
+     * file is written next to the target and moved in place once complete, a reader never sees half a snapshot.
+     *
+     * @return Number of accounts in the snapshot.
+     */
+    public static long write(DataSource dataSource, Path file) {
+        final var partial = file.resolveSibling(file.getFileName() + ".partial");
+        try (final Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+
+            final var countResult = connection.createStatement().executeQuery("SELECT COUNT(*) FROM account");
+            countResult.next();
+            final var count = countResult.getLong(1);
+
+            try (final var channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 final var writeArena = Arena.ofConfined()) {
+                final var segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + 2 * count * Long.BYTES, writeArena);
+                segment.set(LONG, 0, MAGIC);
+                segment.set(LONG, Long.BYTES, count);
+
+                final var statement = connection.prepareStatement("SELECT id, balance_minor FROM account ORDER BY id",
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                // streams the rows instead of reading the whole result first
+                statement.setFetchSize(Integer.MIN_VALUE);
+                final var resultSet = statement.executeQuery();
+                var index = 0L;
+                while (resultSet.next()) {
+                    segment.set(LONG, HEADER_BYTES + index * Long.BYTES, resultSet.getLong(1));
+                    segment.set(LONG, HEADER_BYTES + (count + index) * Long.BYTES, resultSet.getLong(2));
+                    index++;
+                }
+                if (index != count) {
+                    throw new IllegalStateException("Counted " + count + " accounts but read " + index);
+                }
+                segment.force();
+            }
+            connection.commit();
+
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return count;
+        } catch (SQLException | IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Number of accounts in the snapshot.
+     */
+    public long count() {
+        return count;
+    }
+
+    public BigDecimal getTotalBalances() {
+        return fromMinor(sum(0, count));
+    }
+
+    /**
+     * Total of the accounts with fromId &lt;= id &lt; toId.
+     */
+    public BigDecimal getTotalBalances(long fromId, long toId) {
+        final var fromIndex = indexOf(fromId);
+        return fromMinor(sum(fromIndex, Math.max(fromIndex, indexOf(toId))));
+    }
+
+    /**
+     * Accounts with the highest balances, highest first. Ties go to the lower ID.
+     */
+    public List<Balance> getTopBalances(int n) {
+        if (n <= 0) {
+            return List.of();
+        }
+        // the lowest of the top so far on top, only a balance above it can get in
+        final var top = new PriorityQueue<>(Comparator.comparingLong(Balance::balanceMinor)
+                .thenComparing(Balance::id, Comparator.reverseOrder()));
+        var threshold = Long.MIN_VALUE;
+        final var upperBound = SPECIES.loopBound(count);
+        var index = 0L;
+        for (; index < upperBound; index += SPECIES.length()) {
+            final var vector = LongVector.fromMemorySegment(SPECIES, balances, index * Long.BYTES, ByteOrder.LITTLE_ENDIAN);
+            // most vectors have no balance above the threshold and are skipped whole
+            if (top.size() == n && !vector.compare(VectorOperators.GT, threshold).anyTrue()) {
+                continue;
+            }
+            for (int lane = 0; lane < SPECIES.length(); lane++) {
+                threshold = offer(top, n, index + lane);
+            }
+        }
+        for (; index < count; index++) {
+            threshold = offer(top, n, index);
+        }
+
+        final var result = new ArrayList<Balance>(top.size());
+        while (!top.isEmpty()) {
+            result.add(top.poll());
+        }
+        return result.reversed();
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    /**
+     * @return The new threshold, the lowest balance of a full top.
+     */
+    private long offer(PriorityQueue<Balance> top, int n, long index) {
+        final var balanceMinor = balances.getAtIndex(LONG, index);
+        if (top.size() < n) {
+            top.add(new Balance(ids.getAtIndex(LONG, index), balanceMinor));
+        } else if (balanceMinor > top.peek().balanceMinor()) {
+            top.poll();
+            top.add(new Balance(ids.getAtIndex(LONG, index), balanceMinor));
+        }
+        return top.size() < n ? Long.MIN_VALUE : top.peek().balanceMinor();
+    }
+
+    private long sum(long fromIndex, long toIndex) {
+        var sum = LongVector.zero(SPECIES);
+        final var upperBound = fromIndex + SPECIES.loopBound(toIndex - fromIndex);
+        var index = fromIndex;
+        for (; index < upperBound; index += SPECIES.length()) {
+            sum = sum.add(LongVector.fromMemorySegment(SPECIES, balances, index * Long.BYTES, ByteOrder.LITTLE_ENDIAN));
+        }
+        var total = sum.reduceLanes(VectorOperators.ADD);
+        for (; index < toIndex; index++) {
+            total += balances.getAtIndex(LONG, index);
+        }
+        return total;
+    }
+
+    /**
+     * @return Position of the first ID at or above id, count if there is none.
+     */
+    private long indexOf(long id) {
+        var low = 0L;
+        var high = count;
+        while (low < high) {
+            final var middle = (low + high) >>> 1;
+            if (ids.getAtIndex(LONG, middle) < id) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
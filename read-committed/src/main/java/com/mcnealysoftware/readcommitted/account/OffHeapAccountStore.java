@@ -0,0 +1,155 @@
+package com.mcnealysoftware.readcommitted.account;
+
+import com.mcnealysoftware.readcommitted.Page;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.mcnealysoftware.minorunits.MinorUnits.fromMinor;
+import static com.mcnealysoftware.minorunits.MinorUnits.toMinor;
+
+/**
+ * In-process store with the same operations as the AccountDao, without a database. Balances (in minor units) and
+ * names live outside the Java heap, indexed by account ID, so tens of millions of accounts add nothing for the
+ * garbage collector to trace.
+ * <p>
+ * A transfer locks the two stripes that own the accounts, always the lower stripe first, the same deterministic
+ * lock order that the database transfers use with account IDs. Transfers never change the sum of all balances, so
+ * the total is kept up to date by {@link #createAccount} alone and reading it is always consistent.
+ */
+public class OffHeapAccountStore implements AutoCloseable {
+
+    private static final VarHandle LONG = ValueLayout.JAVA_LONG.varHandle();
+    private static final int STRIPES = 1024;
+
+    private final Arena arena = Arena.ofShared();
+    private final long maxAccounts;
+    private final MemorySegment balances;
+    private final MemorySegment nameOffsets;
+    private final MemorySegment nameLengths;
+    private final MemorySegment names;
+    private final AtomicLong nextNameOffset = new AtomicLong();
+    private final AtomicLong lastId = new AtomicLong();
+    private final AtomicLong publishedId = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    /**
+     * @param maxAccounts  Number of accounts the store can hold, the memory is reserved up front.
+     * @param maxNameBytes Space for all account names together, UTF-8 encoded.
+     */
+    public OffHeapAccountStore(long maxAccounts, long maxNameBytes) {
+        this.maxAccounts = maxAccounts;
+        this.balances = arena.allocate(ValueLayout.JAVA_LONG, maxAccounts);
+        this.nameOffsets = arena.allocate(ValueLayout.JAVA_LONG, maxAccounts);
+        this.nameLengths = arena.allocate(ValueLayout.JAVA_INT, maxAccounts);
+        this.names = arena.allocate(maxNameBytes);
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Creates a new account. IDs start at 1 and have no gaps, like a fresh AUTO_INCREMENT column.
+     *
+     * @return Account ID.
+     */
+    public long createAccount(String name, BigDecimal balance) {
+        final var minorBalance = toMinor(balance);
+        final var nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        final var nameOffset = nextNameOffset.getAndAdd(nameBytes.length);
+        if (nameOffset + nameBytes.length > names.byteSize()) {
+            throw new IllegalStateException("No space left for account names");
+        }
+        // every ID handed out below the limit has to be published, or the IDs after it never will be
+        final var id = lastId.incrementAndGet();
+        if (id > maxAccounts) {
+            throw new IllegalStateException("Store is full at " + maxAccounts + " accounts");
+        }
+
+        final var index = id - 1;
+        MemorySegment.copy(nameBytes, 0, names, ValueLayout.JAVA_BYTE, nameOffset, nameBytes.length);
+        nameOffsets.setAtIndex(ValueLayout.JAVA_LONG, index, nameOffset);
+        nameLengths.setAtIndex(ValueLayout.JAVA_INT, index, nameBytes.length);
+        LONG.setVolatile(balances, index * Long.BYTES, minorBalance);
+        total.addAndGet(minorBalance);
+
+        // accounts become visible to getAccounts in ID order, never half written
+        while (!publishedId.compareAndSet(id - 1, id)) {
+            Thread.onSpinWait();
+        }
+        return id;
+    }
+
+    public BigDecimal getBalance(long accountId) {
+        return fromMinor(getBalanceMinor(accountId));
+    }
+
+    public long getBalanceMinor(long accountId) {
+        return (long) LONG.getVolatile(balances, offset(accountId));
+    }
+
+    public void moveAmount(long fromAccountId, long toAccountId, BigDecimal amount) {
+        moveAmountMinor(fromAccountId, toAccountId, toMinor(amount));
+    }
+
+    public void moveAmountMinor(long fromAccountId, long toAccountId, long amount) {
+        final var fromOffset = offset(fromAccountId);
+        final var toOffset = offset(toAccountId);
+        final var fromStripe = stripe(fromAccountId);
+        final var toStripe = stripe(toAccountId);
+
+        // requires a deterministic order of taking locks, here use the lower stripe
+        final var first = locks[Math.min(fromStripe, toStripe)];
+        final var second = locks[Math.max(fromStripe, toStripe)];
+        first.lock();
+        second.lock();
+        try {
+            LONG.setVolatile(balances, fromOffset, (long) LONG.getVolatile(balances, fromOffset) - amount);
+            LONG.setVolatile(balances, toOffset, (long) LONG.getVolatile(balances, toOffset) + amount);
+        } finally {
+            second.unlock();
+            first.unlock();
+        }
+    }
+
+    public BigDecimal getTotalBalances() {
+        return fromMinor(total.get());
+    }
+
+    public Page<Account> getAccounts(int page, int pageSize) {
+        final var numAccounts = publishedId.get();
+        final var accounts = new ArrayList<Account>(pageSize);
+        for (long id = (long) page * pageSize + 1; id <= numAccounts && accounts.size() < pageSize; id++) {
+            final var index = id - 1;
+            final var nameOffset = nameOffsets.getAtIndex(ValueLayout.JAVA_LONG, index);
+            final var nameLength = nameLengths.getAtIndex(ValueLayout.JAVA_INT, index);
+            final var name = new String(names.asSlice(nameOffset, nameLength).toArray(ValueLayout.JAVA_BYTE), StandardCharsets.UTF_8);
+            accounts.add(new Account(id, name, (long) LONG.getVolatile(balances, index * Long.BYTES)));
+        }
+        return new Page<>(accounts, numAccounts);
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    private long offset(long accountId) {
+        if (accountId < 1 || accountId > publishedId.get()) {
+            throw new IllegalArgumentException("No account " + accountId);
+        }
+        return (accountId - 1) * Long.BYTES;
+    }
+
+    private int stripe(long accountId) {
+        return (int) (accountId & (STRIPES - 1));
+    }
+}
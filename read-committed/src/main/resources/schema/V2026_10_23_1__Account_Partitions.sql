@@ -0,0 +1,7 @@
+-- RANGE on id, a query with an id range only reads the partitions it overlaps, and the oldest accounts can be
+-- archived or one partition rebuilt without touching the rest. This copies the table once. Further boundaries are
+-- split off with AccountPartitions.split, p_max holds everything past the last one.
+ALTER TABLE account PARTITION BY RANGE (id) (
+    PARTITION p100000000 VALUES LESS THAN (100000000),
+    PARTITION p_max VALUES LESS THAN MAXVALUE
+);
@@ -0,0 +1,63 @@
+package com.mcnealysoftware.readcommitted;
+
+import com.mcnealysoftware.readcommitted.account.AccountDao;
+import com.mcnealysoftware.slowoperationlog.SlowOperationLog;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.testcontainers.mysql.MySQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SlowOperationLogTest {
+
+    @TempDir
+    Path logDirectory;
+
+    @Test
+    void slowOperationLogTest() throws IOException {
+        try (final var mysql = new MySQLContainer(DockerImageName.parse("mysql:8.0.36"))) {
+            mysql.start();
+            final var config = new HikariConfig();
+            config.setJdbcUrl(mysql.getJdbcUrl());
+            config.setUsername(mysql.getUsername());
+            config.setPassword(mysql.getPassword());
+            config.setDriverClassName(mysql.getDriverClassName());
+            try (var datasource = new HikariDataSource(config)) {
+                final var flyway = Flyway.configure()
+                        .dataSource(datasource).locations("classpath:schema").load();
+                flyway.migrate();
+
+                // everything is slow with a threshold of zero
+                try (var log = new SlowOperationLog(Duration.ZERO, Duration.ofHours(1), logDirectory.resolve("slow.%g.log").toString(), 1_000_000, 2)) {
+                    final var dao = new AccountDao(log.wrap(datasource), Connection.TRANSACTION_READ_COMMITTED);
+                    dao.createAccount("Alice", BigDecimal.valueOf(1000L));
+                    dao.getAccounts(0, 10);
+                    dao.getAccounts(1, 10);
+                }
+            }
+        }
+
+        final var lines = Files.readAllLines(logDirectory.resolve("slow.0.log"));
+        final var pageQueries = lines.stream()
+                .filter(line -> line.contains("\"sql\":\"SELECT id, name, balance_minor FROM account LIMIT ? OFFSET ?\""))
+                .toList();
+        assertEquals(2, pageQueries.size());
+        assertTrue(pageQueries.stream().anyMatch(line -> line.contains("\"parameters\":[\"10\",\"0\"]")));
+        assertTrue(pageQueries.stream().allMatch(line -> line.contains("\"isolation\":\"READ_COMMITTED\"")));
+        // the plan is captured once per interval for the same statement
+        assertEquals(1, pageQueries.stream().filter(line -> line.contains("\"plan\":{")).count());
+        assertTrue(lines.stream().anyMatch(line -> line.contains("\"sql\":\"INSERT INTO account (name, balance_minor) VALUES (?, ?)\"")));
+    }
+}
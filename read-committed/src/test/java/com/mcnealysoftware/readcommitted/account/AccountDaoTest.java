@@ -11,12 +11,17 @@ import javax.sql.DataSource;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class AccountDaoTest {
     @FunctionalInterface
@@ -126,4 +131,103 @@ public class AccountDaoTest {
             }
         });
     }
+
+    @Test
+    void getBalancesTest() throws SQLException, InterruptedException, ExecutionException {
+        setup(connection -> {
+            final var dao = new AccountDao(connection, Connection.TRANSACTION_REPEATABLE_READ);
+
+            final var ids = new ArrayList<Long>();
+            for (int i = 0; i < AccountDao.IN_CHUNK_SIZE + 10; i++) {
+                ids.add(dao.createAccount("Account " + i, BigDecimal.valueOf(i)));
+            }
+            ids.add(ids.getFirst());
+            ids.add(-1L);
+
+            final var balances = dao.getBalances(ids);
+            assertEquals(AccountDao.IN_CHUNK_SIZE + 10, balances.size());
+            assertEquals(0, BigDecimal.valueOf(0L).compareTo(balances.get(ids.getFirst())));
+            assertEquals(0, BigDecimal.valueOf(AccountDao.IN_CHUNK_SIZE + 9).compareTo(balances.get(ids.get(AccountDao.IN_CHUNK_SIZE + 9))));
+            assertFalse(balances.containsKey(-1L));
+            assertTrue(dao.getBalances(List.of()).isEmpty());
+        });
+    }
+
+    @Test
+    void getAccountsByBalanceTest() throws SQLException, InterruptedException, ExecutionException {
+        setup(connection -> {
+            final var dao = new AccountDao(connection, Connection.TRANSACTION_REPEATABLE_READ);
+
+            for (int i = 25; i > 0; i--) {
+                dao.createAccount("Account " + i, BigDecimal.valueOf(i * 10L));
+            }
+
+            final var balances = new ArrayList<Long>();
+            AccountDao.BalanceKey after = null;
+            var pages = 0;
+            do {
+                final var page = dao.getAccountsByBalance(BigDecimal.valueOf(50L), BigDecimal.valueOf(200L), after, 4);
+                page.items().forEach(account -> balances.add(account.balance().longValue()));
+                after = page.next();
+                pages++;
+            } while (after != null);
+
+            assertEquals(LongStream.rangeClosed(5, 20).map(i -> i * 10).boxed().toList(), balances);
+            assertEquals(4, pages);
+        });
+    }
+
+    @Test
+    void getAccountsByBalanceTestTies() throws SQLException, InterruptedException, ExecutionException {
+        setup(connection -> {
+            final var dao = new AccountDao(connection, Connection.TRANSACTION_REPEATABLE_READ);
+
+            // pages end in the middle of a balance, the rest of it comes from the id part of the key
+            final var ids = new ArrayList<Long>();
+            for (int i = 0; i < 10; i++) {
+                ids.add(dao.createAccount("Account " + i, BigDecimal.valueOf(100L + i % 3)));
+            }
+
+            final var read = new ArrayList<Long>();
+            AccountDao.BalanceKey after = null;
+            do {
+                final var page = dao.getAccountsByBalance(BigDecimal.valueOf(100L), BigDecimal.valueOf(102L), after, 4);
+                page.items().forEach(account -> read.add(account.id()));
+                after = page.next();
+            } while (after != null);
+
+            final var expected = new ArrayList<Long>();
+            for (int balance = 0; balance < 3; balance++) {
+                for (int i = balance; i < 10; i += 3) {
+                    expected.add(ids.get(i));
+                }
+            }
+            assertEquals(expected, read);
+        });
+    }
+
+    @Test
+    void getAccountsCreatedBetweenTest() throws SQLException, InterruptedException, ExecutionException {
+        setup(connection -> {
+            final var dao = new AccountDao(connection, Connection.TRANSACTION_REPEATABLE_READ);
+
+            for (int i = 0; i < 25; i++) {
+                dao.createAccount("Account " + i, BigDecimal.valueOf(1000L));
+            }
+
+            // a day either way, the JVM and the database may not agree on the time zone
+            final var from = Instant.now().minus(Duration.ofDays(1));
+            final var to = Instant.now().plus(Duration.ofDays(1));
+            final var ids = new ArrayList<Long>();
+            AccountDao.TimestampKey after = null;
+            do {
+                final var page = dao.getAccountsCreatedBetween(from, to, after, 10);
+                page.items().forEach(account -> ids.add(account.id()));
+                after = page.next();
+            } while (after != null);
+
+            assertEquals(LongStream.rangeClosed(1, 25).boxed().toList(), ids);
+            assertTrue(dao.getAccountsCreatedBetween(to, to.plus(Duration.ofDays(1)), null, 10).items().isEmpty());
+        });
+    }
 }
@@ -0,0 +1,116 @@
+package com.mcnealysoftware.readcommitted.account;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.testcontainers.mysql.MySQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AccountExporterTest {
+    @FunctionalInterface
+    public interface CheckedConsumer<T> {
+        void accept(T t) throws SQLException, IOException;
+    }
+
+    @TempDir
+    Path directory;
+
+    private void setup(CheckedConsumer<DataSource> f) throws SQLException, IOException {
+        try (final var mysql = new MySQLContainer(DockerImageName.parse("mysql:8.0.36"))) {
+            mysql.start();
+            final var config = new HikariConfig();
+            config.setJdbcUrl(mysql.getJdbcUrl());
+            config.setUsername(mysql.getUsername());
+            config.setPassword(mysql.getPassword());
+            config.setDriverClassName(mysql.getDriverClassName());
+            try (var datasource = new HikariDataSource(config)) {
+                final var flyway = Flyway.configure()
+                        .dataSource(datasource).locations("classpath:schema").load();
+                flyway.migrate();
+                f.accept(datasource);
+            }
+        }
+    }
+
+    @Test
+    void exportCsvTest() throws SQLException, IOException {
+        setup(datasource -> {
+            final var dao = new AccountDao(datasource, Connection.TRANSACTION_READ_COMMITTED);
+            final var exporter = new AccountExporter(datasource, Connection.TRANSACTION_READ_COMMITTED);
+            dao.createAccount("Alice", new BigDecimal("1000.50"));
+            dao.createAccount("Bob, \"the builder\"", BigDecimal.valueOf(2000L));
+            dao.createAccount("Zoë", new BigDecimal("-0.25"));
+
+            final var file = directory.resolve("accounts.csv");
+            assertEquals(3L, exporter.export(file, AccountExporter.Format.CSV, 1L, Long.MAX_VALUE));
+
+            assertEquals(List.of("1,Alice,1000.50", "2,\"Bob, \"\"the builder\"\"\",2000.00", "3,Zoë,-0.25"),
+                    Files.readAllLines(file, StandardCharsets.UTF_8));
+        });
+    }
+
+    @Test
+    void exportBinaryTest() throws SQLException, IOException {
+        setup(datasource -> {
+            final var dao = new AccountDao(datasource, Connection.TRANSACTION_READ_COMMITTED);
+            final var exporter = new AccountExporter(datasource, Connection.TRANSACTION_READ_COMMITTED);
+            for (int i = 0; i < 10; i++) {
+                dao.createAccount("Account " + i, BigDecimal.valueOf(i));
+            }
+
+            final var file = directory.resolve("accounts.bin");
+            assertEquals(5L, exporter.export(file, AccountExporter.Format.BINARY, 3L, 8L));
+
+            final var accounts = new ArrayList<Account>();
+            try (final var in = new DataInputStream(Files.newInputStream(file))) {
+                while (in.available() > 0) {
+                    final var id = in.readLong();
+                    final var name = new byte[in.readInt()];
+                    in.readFully(name);
+                    accounts.add(new Account(id, new String(name, StandardCharsets.UTF_8), in.readLong()));
+                }
+            }
+            assertEquals(dao.getAccountsAfter(2L, 5).items(), accounts);
+        });
+    }
+
+    @Test
+    void exportParallelTest() throws SQLException, IOException {
+        setup(datasource -> {
+            final var dao = new AccountDao(datasource, Connection.TRANSACTION_READ_COMMITTED);
+            final var exporter = new AccountExporter(datasource, Connection.TRANSACTION_READ_COMMITTED);
+            for (int i = 0; i < 1000; i++) {
+                dao.createAccount("Account " + i, BigDecimal.ONE);
+            }
+
+            final var rows = exporter.exportParallel(directory, AccountExporter.Format.CSV, 3);
+
+            assertEquals(List.of("accounts-1-335.csv", "accounts-335-669.csv", "accounts-669-1001.csv"),
+                    rows.keySet().stream().map(file -> file.getFileName().toString()).toList());
+            assertEquals(List.of(334L, 334L, 332L), List.copyOf(rows.values()));
+            final var lines = new ArrayList<String>();
+            for (Path file : rows.keySet()) {
+                lines.addAll(Files.readAllLines(file, StandardCharsets.UTF_8));
+            }
+            assertEquals(1000, lines.size());
+            assertEquals("1,Account 0,1.00", lines.getFirst());
+            assertEquals("1000,Account 999,1.00", lines.getLast());
+        });
+    }
+}
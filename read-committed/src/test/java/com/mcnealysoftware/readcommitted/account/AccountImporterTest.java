@@ -0,0 +1,113 @@
+package com.mcnealysoftware.readcommitted.account;
+
+import com.mcnealysoftware.minorunits.MinorUnits;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.mysql.MySQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AccountImporterTest {
+    @FunctionalInterface
+    public interface CheckedConsumer<T> {
+        void accept(T t) throws SQLException, IOException;
+    }
+
+    private void setup(CheckedConsumer<DataSource> f) throws SQLException, IOException {
+        try (final var mysql = new MySQLContainer(DockerImageName.parse("mysql:8.0.36")).withCommand("--local-infile=1")) {
+            mysql.start();
+            final var config = new HikariConfig();
+            config.setJdbcUrl(mysql.getJdbcUrl());
+            config.setUsername(mysql.getUsername());
+            config.setPassword(mysql.getPassword());
+            config.setDriverClassName(mysql.getDriverClassName());
+            config.addDataSourceProperty("allowLoadLocalInfile", "true");
+            try (var datasource = new HikariDataSource(config)) {
+                final var flyway = Flyway.configure()
+                        .dataSource(datasource).locations("classpath:schema").load();
+                flyway.migrate();
+                f.accept(datasource);
+            }
+        }
+    }
+
+    private static ByteArrayInputStream csv(String... lines) {
+        return new ByteArrayInputStream(String.join("\r\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void importCsvTest() throws SQLException, IOException {
+        setup(datasource -> {
+            final var dao = new AccountDao(datasource, Connection.TRANSACTION_READ_COMMITTED);
+            final var importer = new AccountImporter(datasource, Connection.TRANSACTION_READ_COMMITTED);
+
+            final var imported = importer.importCsv(csv("Alice,1000", "\"Bob, \"\"the builder\"\"\",2000.50", "Zoë,-0.25"));
+
+            assertEquals(3L, imported);
+            final var accounts = dao.getAccountsAfter(0, 10).items();
+            assertEquals(List.of("Alice", "Bob, \"the builder\"", "Zoë"), accounts.stream().map(Account::name).toList());
+            assertEquals(List.of(100000L, 200050L, -25L), accounts.stream().map(Account::balanceMinor).toList());
+        });
+    }
+
+    @Test
+    void importCsvTestInvalid() throws SQLException, IOException {
+        setup(datasource -> {
+            final var dao = new AccountDao(datasource, Connection.TRANSACTION_READ_COMMITTED);
+            final var importer = new AccountImporter(datasource, Connection.TRANSACTION_READ_COMMITTED);
+
+            assertThrows(IllegalArgumentException.class, () -> importer.importCsv(csv("Alice,1000", "Bob,lots")));
+            assertThrows(IllegalArgumentException.class, () -> importer.importCsv(csv("Alice,1000", "Bob,0.001")));
+            assertThrows(IllegalArgumentException.class, () -> importer.importCsv(csv("Alice,1000", "Bob")));
+            assertThrows(IllegalArgumentException.class, () -> importer.importCsv(csv("Alice,1000", "Bob,1,2")));
+
+            // all or nothing
+            assertEquals(0L, dao.getAccounts(0, 10).total());
+            assertEquals(1L, importer.importCsv(csv("Alice,1000")));
+        });
+    }
+
+    @Test
+    void importBinaryTest() throws SQLException, IOException {
+        setup(datasource -> {
+            final var dao = new AccountDao(datasource, Connection.TRANSACTION_READ_COMMITTED);
+            final var importer = new AccountImporter(datasource, Connection.TRANSACTION_READ_COMMITTED);
+            final var names = List.of("Alice", "Tab\tand\\backslash", "New\nline", "\\N", "");
+
+            final var bytes = new ByteArrayOutputStream();
+            try (final var out = new DataOutputStream(bytes)) {
+                for (int i = 0; i < 10_000; i++) {
+                    final var name = names.get(i % names.size()).getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(name.length);
+                    out.write(name);
+                    out.writeLong(i);
+                }
+            }
+
+            assertEquals(10_000L, importer.importBinary(new ByteArrayInputStream(bytes.toByteArray())));
+            assertEquals(names, dao.getAccountsAfter(0, names.size()).items().stream().map(Account::name).toList());
+            assertEquals(0, BigDecimal.valueOf(9_999L * 10_000L / 2, MinorUnits.SCALE).compareTo(dao.getTotalBalancesParallel()));
+
+            // cut off in the middle of an account
+            final var truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 3);
+            assertThrows(RuntimeException.class, () -> importer.importBinary(new ByteArrayInputStream(truncated)));
+            assertEquals(10_000L, dao.getAccounts(0, 1).total());
+        });
+    }
+}
@@ -0,0 +1,116 @@
+package com.mcnealysoftware.readcommitted.account;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.mysql.MySQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AccountPartitionsTest {
+    @FunctionalInterface
+    public interface CheckedConsumer<T> {
+        void accept(T t) throws SQLException;
+    }
+
+    private void setup(CheckedConsumer<DataSource> f) throws SQLException {
+        try (final var mysql = new MySQLContainer(DockerImageName.parse("mysql:8.0.36"))) {
+            mysql.start();
+            final var config = new HikariConfig();
+            config.setJdbcUrl(mysql.getJdbcUrl());
+            config.setUsername(mysql.getUsername());
+            config.setPassword(mysql.getPassword());
+            config.setDriverClassName(mysql.getDriverClassName());
+            try (var datasource = new HikariDataSource(config)) {
+                final var flyway = Flyway.configure()
+                        .dataSource(datasource).locations("classpath:schema").load();
+                flyway.migrate();
+                f.accept(datasource);
+            }
+        }
+    }
+
+    @Test
+    void splitTest() throws SQLException {
+        setup(datasource -> {
+            final var dao = new AccountDao(datasource, Connection.TRANSACTION_READ_COMMITTED);
+            final var partitions = new AccountPartitions(datasource);
+            for (int i = 0; i < 30; i++) {
+                dao.createAccount("Account " + i, BigDecimal.valueOf(10L));
+            }
+
+            partitions.split(11);
+            partitions.split(21);
+            partitions.split(21);
+
+            final var names = partitions.getPartitions().stream().map(AccountPartitions.Partition::name).toList();
+            assertEquals(List.of("p11", "p21", "p100000000", "p_max"), names);
+            assertEquals(0, BigDecimal.valueOf(300L).compareTo(dao.getTotalBalancesParallel()));
+
+            final var rows = partitions.forEachPartition(partition -> dao.getAccountsAfter(Math.max(partition.fromId(), 1L) - 1, 100).items().stream()
+                    .filter(account -> account.id() < partition.toId())
+                    .count());
+            assertEquals(10L, rows.get("p11"));
+            assertEquals(10L, rows.get("p21"));
+            assertEquals(10L, rows.get("p100000000"));
+        });
+    }
+
+    @Test
+    void getAccountsAfterTest() throws SQLException {
+        setup(datasource -> {
+            final var dao = new AccountDao(datasource, Connection.TRANSACTION_READ_COMMITTED);
+            new AccountPartitions(datasource).split(6);
+            for (int i = 0; i < 12; i++) {
+                dao.createAccount("Account " + i, BigDecimal.ONE);
+            }
+
+            final var ids = new ArrayList<Long>();
+            Long after = 0L;
+            while (after != null) {
+                final var page = dao.getAccountsAfter(after, 5);
+                page.items().forEach(account -> ids.add(account.id()));
+                after = page.next();
+            }
+            assertEquals(12, ids.size());
+            assertEquals(1L, ids.getFirst());
+            assertEquals(12L, ids.getLast());
+        });
+    }
+
+    @Test
+    void archiveAndRebuildTest() throws SQLException {
+        setup(datasource -> {
+            final var dao = new AccountDao(datasource, Connection.TRANSACTION_READ_COMMITTED);
+            final var partitions = new AccountPartitions(datasource);
+            partitions.split(11);
+            for (int i = 0; i < 20; i++) {
+                dao.createAccount("Account " + i, BigDecimal.valueOf(10L));
+            }
+
+            final var archive = partitions.archive("p11");
+            assertEquals("account_archive_p11", archive);
+            assertEquals(0, BigDecimal.valueOf(100L).compareTo(dao.getTotalBalancesParallel()));
+            assertEquals(0, dao.getBalances(List.of(1L, 10L)).size());
+            try (final Connection connection = datasource.getConnection()) {
+                final var resultSet = connection.createStatement().executeQuery("SELECT COUNT(*) FROM " + archive);
+                resultSet.next();
+                assertEquals(10L, resultSet.getLong(1));
+            }
+
+            partitions.rebuild("p100000000");
+            assertEquals(0, BigDecimal.TEN.compareTo(dao.getBalance(15L)));
+            assertThrows(IllegalArgumentException.class, () -> partitions.rebuild("account; DROP TABLE account"));
+        });
+    }
+}
@@ -0,0 +1,108 @@
+package com.mcnealysoftware.readcommitted.account;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BalanceLoaderTest {
+
+    private final ConcurrentLinkedQueue<Collection<Long>> batches = new ConcurrentLinkedQueue<>();
+
+    private Map<Long, BigDecimal> getBalances(Collection<Long> accountIds) {
+        batches.add(List.copyOf(accountIds));
+        final var balances = new HashMap<Long, BigDecimal>();
+        for (Long accountId : accountIds) {
+            if (accountId > 0) {
+                balances.put(accountId, BigDecimal.valueOf(accountId * 10));
+            }
+        }
+        return balances;
+    }
+
+    @Test
+    void getBalanceTest() {
+        try (final var loader = new BalanceLoader(this::getBalances, Duration.ofMillis(1), 100)) {
+            assertEquals(10L, loader.getBalance(1).longValue());
+            assertThrows(IllegalArgumentException.class, () -> loader.getBalance(-1));
+        }
+    }
+
+    @Test
+    void getBalanceTestConcurrent() throws InterruptedException, ExecutionException {
+        final var balances = new LinkedList<Future<BigDecimal>>();
+        try (final var loader = new BalanceLoader(this::getBalances, Duration.ofMillis(5), 50)) {
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 1000; i++) {
+                    final long accountId = i % 20 + 1;
+                    balances.add(executor.submit(() -> loader.getBalance(accountId)));
+                }
+
+                executor.shutdown();
+                executor.awaitTermination(100, TimeUnit.SECONDS);
+            }
+        }
+
+        for (int i = 0; i < balances.size(); i++) {
+            assertEquals((i % 20 + 1) * 10L, balances.get(i).get().longValue());
+        }
+        // far fewer queries than lookups, and no account twice in one query
+        assertTrue(batches.size() < 1000, "batches: " + batches.size());
+        for (Collection<Long> batch : batches) {
+            assertEquals(batch.size(), batch.stream().distinct().count());
+            assertTrue(batch.size() <= 50);
+        }
+    }
+
+    @Test
+    void getBalanceTestFullBatch() throws InterruptedException {
+        try (final var loader = new BalanceLoader(this::getBalances, Duration.ofMillis(500), 2)) {
+            loader.load(1);
+            Thread.sleep(300);
+            // full, sent right away
+            assertEquals(20L, loader.load(2).join().longValue());
+
+            // gets a window of its own, not what was left of the first batch's
+            final var balance = loader.load(3);
+            Thread.sleep(350);
+            assertFalse(balance.isDone());
+            assertEquals(30L, balance.join().longValue());
+        }
+        assertEquals(List.of(List.of(1L, 2L), List.of(3L)), batches.stream().map(batch -> batch.stream().sorted().toList()).toList());
+    }
+
+    @Test
+    void getBalanceTestClosed() {
+        final var loader = new BalanceLoader(this::getBalances, Duration.ofMillis(1), 100);
+        assertEquals(10L, loader.getBalance(1).longValue());
+        loader.close();
+
+        assertThrows(IllegalStateException.class, () -> loader.getBalance(1));
+        assertThrows(IllegalStateException.class, () -> loader.getBalance(2));
+    }
+
+    @Test
+    void getBalanceTestFailure() {
+        try (final var loader = new BalanceLoader(ids -> {
+            throw new IllegalStateException("database down");
+        }, Duration.ofMillis(1), 100)) {
+            assertThrows(IllegalStateException.class, () -> loader.getBalance(1));
+        }
+    }
+}
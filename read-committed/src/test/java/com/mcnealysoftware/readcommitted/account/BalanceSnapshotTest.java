@@ -0,0 +1,97 @@
+package com.mcnealysoftware.readcommitted.account;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.testcontainers.mysql.MySQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BalanceSnapshotTest {
+    @FunctionalInterface
+    public interface CheckedConsumer<T> {
+        void accept(T t) throws SQLException, IOException;
+    }
+
+    @TempDir
+    Path directory;
+
+    private void setup(CheckedConsumer<DataSource> f) throws SQLException, IOException {
+        try (final var mysql = new MySQLContainer(DockerImageName.parse("mysql:8.0.36"))) {
+            mysql.start();
+            final var config = new HikariConfig();
+            config.setJdbcUrl(mysql.getJdbcUrl());
+            config.setUsername(mysql.getUsername());
+            config.setPassword(mysql.getPassword());
+            config.setDriverClassName(mysql.getDriverClassName());
+            try (var datasource = new HikariDataSource(config)) {
+                final var flyway = Flyway.configure()
+                        .dataSource(datasource).locations("classpath:schema").load();
+                flyway.migrate();
+                f.accept(datasource);
+            }
+        }
+    }
+
+    @Test
+    void snapshotTest() throws SQLException, IOException {
+        setup(datasource -> {
+            final var dao = new AccountDao(datasource, Connection.TRANSACTION_READ_COMMITTED);
+            // not a multiple of any vector length, so the tail is summed too
+            for (int i = 1; i <= 1003; i++) {
+                dao.createAccount("Account " + i, BigDecimal.valueOf(i % 100 == 0 ? 10_000L : i % 7));
+            }
+            final var file = directory.resolve("balances.snapshot");
+
+            assertEquals(1003L, BalanceSnapshot.write(datasource, file));
+            // later changes are not in it
+            dao.createAccount("Late", BigDecimal.valueOf(1_000_000L));
+
+            try (final var snapshot = BalanceSnapshot.open(file)) {
+                assertEquals(1003L, snapshot.count());
+                assertEquals(0, dao.getTotalBalancesParallel().subtract(BigDecimal.valueOf(1_000_000L)).compareTo(snapshot.getTotalBalances()));
+                // 1 to 10, each balance is its ID
+                assertEquals(0, BigDecimal.valueOf(1 + 2 + 3 + 4 + 5 + 6 + 0 + 1 + 2 + 3).compareTo(snapshot.getTotalBalances(1L, 11L)));
+                assertEquals(0, BigDecimal.ZERO.compareTo(snapshot.getTotalBalances(11L, 1L)));
+                assertEquals(0, BigDecimal.ZERO.compareTo(snapshot.getTotalBalances(2000L, 3000L)));
+
+                final var top = snapshot.getTopBalances(12);
+                assertEquals(List.of(100L, 200L, 300L, 400L, 500L, 600L, 700L, 800L, 900L, 1000L),
+                        top.subList(0, 10).stream().map(BalanceSnapshot.Balance::id).toList());
+                assertEquals(1_000_000L, top.getFirst().balanceMinor());
+                // then the lowest IDs with a balance of 6
+                assertEquals(List.of(6L, 13L), top.subList(10, 12).stream().map(BalanceSnapshot.Balance::id).toList());
+                assertEquals(0, snapshot.getTopBalances(0).size());
+            }
+        });
+    }
+
+    @Test
+    void snapshotTestEmpty() throws SQLException, IOException {
+        setup(datasource -> {
+            final var file = directory.resolve("balances.snapshot");
+
+            assertEquals(0L, BalanceSnapshot.write(datasource, file));
+            try (final var snapshot = BalanceSnapshot.open(file)) {
+                assertEquals(0, BigDecimal.ZERO.compareTo(snapshot.getTotalBalances()));
+                assertEquals(List.of(), snapshot.getTopBalances(10));
+            }
+
+            final var other = Files.writeString(directory.resolve("other"), "Not a snapshot at all");
+            assertThrows(IllegalArgumentException.class, () -> BalanceSnapshot.open(other));
+        });
+    }
+}
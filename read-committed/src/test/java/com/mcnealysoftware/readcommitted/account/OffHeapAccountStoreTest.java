@@ -0,0 +1,79 @@
+package com.mcnealysoftware.readcommitted.account;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class OffHeapAccountStoreTest {
+
+    @Test
+    void createAccountTest() {
+        try (final var store = new OffHeapAccountStore(10, 100)) {
+            final var alice = store.createAccount("Alice", BigDecimal.valueOf(1000L));
+            final var bob = store.createAccount("Bob", BigDecimal.valueOf(2000L));
+
+            assertEquals(1, alice);
+            assertEquals(2, bob);
+            assertEquals(1000L, store.getBalance(alice).longValue());
+            assertEquals(3000L, store.getTotalBalances().longValue());
+
+            final var accounts = store.getAccounts(0, 10);
+            assertEquals(2, accounts.total());
+            assertEquals(List.of("Alice", "Bob"), accounts.items().stream().map(Account::name).toList());
+
+            assertThrows(IllegalArgumentException.class, () -> store.getBalance(3));
+        }
+    }
+
+    @Test
+    void createAccountTestFull() {
+        try (final var store = new OffHeapAccountStore(1, 100)) {
+            store.createAccount("Alice", BigDecimal.valueOf(1000L));
+            assertThrows(IllegalStateException.class, () -> store.createAccount("Bob", BigDecimal.valueOf(2000L)));
+        }
+    }
+
+    @Test
+    void moveAccountTestConcurrent() throws InterruptedException, ExecutionException {
+        try (final var store = new OffHeapAccountStore(2_000, 20_000)) {
+            final var alice = store.createAccount("Alice", BigDecimal.valueOf(1000L));
+            final var bob = store.createAccount("Bob", BigDecimal.valueOf(2000L));
+
+            final var totals = new LinkedList<Future<BigDecimal>>();
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 1000; i++) {
+                    executor.submit(() -> {
+                        store.moveAmount(alice, bob, BigDecimal.valueOf(2L));
+                        store.moveAmount(bob, alice, BigDecimal.valueOf(1L));
+                    });
+                    executor.submit(() -> store.createAccount("Charlie", BigDecimal.ZERO));
+                    if (i % 10 == 0) {
+                        totals.add(executor.submit(store::getTotalBalances));
+                    }
+                }
+
+                executor.shutdown();
+                executor.awaitTermination(100, TimeUnit.SECONDS);
+            }
+
+            assertEquals(0L, store.getBalance(alice).longValue());
+            assertEquals(3000L, store.getBalance(bob).longValue());
+            assertEquals(3000L, store.getTotalBalances().longValue());
+            assertEquals(1002, store.getAccounts(0, 10).total());
+            for (Future<BigDecimal> total : totals) {
+                assertEquals(3000L, total.get().longValue());
+            }
+        }
+    }
+}
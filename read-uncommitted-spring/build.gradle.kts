@@ -20,6 +20,9 @@ repositories {
 
 dependencies {
     implementation("com.mysql:mysql-connector-j:9.5.0")
+    implementation(project(":minor-units"))
+    // migrations every module runs the same, picked up from classpath:schema next to the module's own
+    runtimeOnly(project(":account-schema"))
     implementation("org.springframework.boot:spring-boot-starter-jdbc")
     implementation("org.springframework.boot:spring-boot-starter-data-jpa")
     implementation("org.springframework.retry:spring-retry")
@@ -1,5 +1,6 @@
 package com.mcnealysoftware.readuncommitted.account;
 
+import com.mcnealysoftware.minorunits.MinorUnits;
 import jakarta.persistence.*;
 
 import java.math.BigDecimal;
@@ -10,12 +11,12 @@ public class Account {
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
     private String name;
-    private BigDecimal balance;
+    private long balanceMinor;
 
-    public Account(long id, String name, BigDecimal balance) {
+    public Account(long id, String name, long balanceMinor) {
         this.id = id;
         this.name = name;
-        this.balance = balance;
+        this.balanceMinor = balanceMinor;
     }
 
     public Account() {
@@ -38,10 +39,18 @@ public class Account {
     }
 
     public BigDecimal getBalance() {
-        return balance;
+        return MinorUnits.fromMinor(balanceMinor);
     }
 
     public void setBalance(BigDecimal balance) {
-        this.balance = balance;
+        this.balanceMinor = MinorUnits.toMinor(balance);
+    }
+
+    public long getBalanceMinor() {
+        return balanceMinor;
+    }
+
+    public void setBalanceMinor(long balanceMinor) {
+        this.balanceMinor = balanceMinor;
     }
 }
@@ -11,6 +11,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 
+import static com.mcnealysoftware.minorunits.MinorUnits.fromMinor;
+import static com.mcnealysoftware.minorunits.MinorUnits.toMinor;
+
 @Repository
 public class AccountRepositoryEntityManager {
 
@@ -37,6 +40,11 @@ public class AccountRepositoryEntityManager {
         return entityManager.find(Account.class, accountId).getBalance();
     }
 
+    @Transactional(readOnly = true, isolation = Isolation.READ_UNCOMMITTED)
+    public long getBalanceMinor(long accountId) {
+        return entityManager.find(Account.class, accountId).getBalanceMinor();
+    }
+
     @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
     public BigDecimal getBalanceCommitted(long accountId) {
         return entityManager.find(Account.class, accountId).getBalance();
@@ -44,11 +52,16 @@ public class AccountRepositoryEntityManager {
 
     @Transactional(readOnly = false, isolation = Isolation.READ_UNCOMMITTED)
     public void moveAmount(long fromAccountId, long toAccountId, BigDecimal amount) {
-        final var fromQuery = entityManager.createQuery("UPDATE Account SET balance = balance - ?1 WHERE id = ?2");
+        moveAmountMinor(fromAccountId, toAccountId, toMinor(amount));
+    }
+
+    @Transactional(readOnly = false, isolation = Isolation.READ_UNCOMMITTED)
+    public void moveAmountMinor(long fromAccountId, long toAccountId, long amount) {
+        final var fromQuery = entityManager.createQuery("UPDATE Account SET balanceMinor = balanceMinor - ?1 WHERE id = ?2");
         fromQuery.setParameter(1, amount);
         fromQuery.setParameter(2, fromAccountId);
         fromQuery.executeUpdate();
-        final var toQuery = entityManager.createQuery("UPDATE Account SET balance = balance + ?1 WHERE id = ?2");
+        final var toQuery = entityManager.createQuery("UPDATE Account SET balanceMinor = balanceMinor + ?1 WHERE id = ?2");
         toQuery.setParameter(1, amount);
         toQuery.setParameter(2, toAccountId);
         toQuery.executeUpdate();
@@ -56,14 +69,14 @@ public class AccountRepositoryEntityManager {
 
     @Transactional(readOnly = true, isolation = Isolation.READ_UNCOMMITTED)
     public BigDecimal getTotalBalances() {
-        final var query = entityManager.createQuery("SELECT SUM(balance) FROM Account", BigDecimal.class);
-        return query.getSingleResult();
+        final var query = entityManager.createQuery("SELECT COALESCE(SUM(balanceMinor), 0L) FROM Account", Long.class);
+        return fromMinor(query.getSingleResult());
     }
 
     @Retryable(maxAttempts = 100, backoff = @Backoff(0))
     @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
     public BigDecimal getTotalBalancesCommitted() {
-        final var query = entityManager.createQuery("SELECT SUM(balance) FROM Account", BigDecimal.class);
-        return query.getSingleResult();
+        final var query = entityManager.createQuery("SELECT COALESCE(SUM(balanceMinor), 0L) FROM Account", Long.class);
+        return fromMinor(query.getSingleResult());
     }
 }
\ No newline at end of file
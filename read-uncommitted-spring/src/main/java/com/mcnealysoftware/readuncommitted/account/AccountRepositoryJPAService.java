@@ -9,6 +9,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 
+import static com.mcnealysoftware.minorunits.MinorUnits.fromMinor;
+import static com.mcnealysoftware.minorunits.MinorUnits.toMinor;
+
 @Service
 public class AccountRepositoryJPAService {
 
@@ -29,6 +32,11 @@ public class AccountRepositoryJPAService {
         return accountRepository.findById(accountId).get().getBalance();
     }
 
+    @Transactional(readOnly = true, isolation = Isolation.READ_UNCOMMITTED)
+    public long getBalanceMinor(long accountId) {
+        return accountRepository.findById(accountId).get().getBalanceMinor();
+    }
+
     @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
     public BigDecimal getBalanceCommitted(long accountId) {
         return accountRepository.findById(accountId).get().getBalance();
@@ -36,18 +44,23 @@ public class AccountRepositoryJPAService {
 
     @Transactional(readOnly = false, isolation = Isolation.READ_UNCOMMITTED)
     public void moveAmount(long fromAccountId, long toAccountId, BigDecimal amount) {
-        accountRepository.moveAmount(fromAccountId, amount.negate());
+        moveAmountMinor(fromAccountId, toAccountId, toMinor(amount));
+    }
+
+    @Transactional(readOnly = false, isolation = Isolation.READ_UNCOMMITTED)
+    public void moveAmountMinor(long fromAccountId, long toAccountId, long amount) {
+        accountRepository.moveAmount(fromAccountId, -amount);
         accountRepository.moveAmount(toAccountId, amount);
     }
 
     @Transactional(readOnly = true, isolation = Isolation.READ_UNCOMMITTED)
     public BigDecimal getTotalBalances() {
-        return accountRepository.getTotalBalances();
+        return fromMinor(accountRepository.getTotalBalances());
     }
 
     @Retryable(maxAttempts = 100, backoff = @Backoff(0))
     @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
     public BigDecimal getTotalBalancesCommitted() {
-        return accountRepository.getTotalBalances();
+        return fromMinor(accountRepository.getTotalBalances());
     }
 }
@@ -12,6 +12,9 @@ import javax.sql.DataSource;
 import java.math.BigDecimal;
 import java.sql.PreparedStatement;
 
+import static com.mcnealysoftware.minorunits.MinorUnits.fromMinor;
+import static com.mcnealysoftware.minorunits.MinorUnits.toMinor;
+
 @Repository
 public class AccountRepositoryJdbc {
 
@@ -28,9 +31,9 @@ public class AccountRepositoryJdbc {
         jdbcTemplate.update(
                 con -> {
                     var ps = con.prepareStatement(
-                            "INSERT INTO account (name, balance) VALUES (?, ?)", PreparedStatement.RETURN_GENERATED_KEYS);
+                            "INSERT INTO account (name, balance_minor) VALUES (?, ?)", PreparedStatement.RETURN_GENERATED_KEYS);
                     ps.setString(1, name);
-                    ps.setBigDecimal(2, balance);
+                    ps.setLong(2, toMinor(balance));
                     return ps;
                 }, keyHolder);
         return keyHolder.getKey().longValue();
@@ -38,27 +41,37 @@ public class AccountRepositoryJdbc {
 
     @Transactional(readOnly = true, isolation = Isolation.READ_UNCOMMITTED)
     public BigDecimal getBalance(long accountId) {
-        return jdbcTemplate.queryForObject("SELECT balance FROM account WHERE id = ?", BigDecimal.class, accountId);
+        return fromMinor(getBalanceMinor(accountId));
+    }
+
+    @Transactional(readOnly = true, isolation = Isolation.READ_UNCOMMITTED)
+    public long getBalanceMinor(long accountId) {
+        return jdbcTemplate.queryForObject("SELECT balance_minor FROM account WHERE id = ?", Long.class, accountId);
     }
 
     @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
     public BigDecimal getBalanceCommitted(long accountId) {
-        return jdbcTemplate.queryForObject("SELECT balance FROM account WHERE id = ?", BigDecimal.class, accountId);
+        return fromMinor(jdbcTemplate.queryForObject("SELECT balance_minor FROM account WHERE id = ?", Long.class, accountId));
     }
 
     @Transactional(readOnly = false, isolation = Isolation.READ_UNCOMMITTED)
     public void moveAmount(long fromAccountId, long toAccountId, BigDecimal amount) {
-        jdbcTemplate.update("UPDATE account SET balance = balance - ? WHERE id = ?", amount, fromAccountId);
-        jdbcTemplate.update("UPDATE account SET balance = balance + ? WHERE id = ?", amount, toAccountId);
+        moveAmountMinor(fromAccountId, toAccountId, toMinor(amount));
+    }
+
+    @Transactional(readOnly = false, isolation = Isolation.READ_UNCOMMITTED)
+    public void moveAmountMinor(long fromAccountId, long toAccountId, long amount) {
+        jdbcTemplate.update("UPDATE account SET balance_minor = balance_minor - ? WHERE id = ?", amount, fromAccountId);
+        jdbcTemplate.update("UPDATE account SET balance_minor = balance_minor + ? WHERE id = ?", amount, toAccountId);
     }
 
     @Transactional(readOnly = true, isolation = Isolation.READ_UNCOMMITTED)
     public BigDecimal getTotalBalances() {
-        return jdbcTemplate.queryForObject("SELECT SUM(balance) FROM account", BigDecimal.class);
+        return fromMinor(jdbcTemplate.queryForObject("SELECT COALESCE(SUM(balance_minor), 0) FROM account", Long.class));
     }
 
     @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
     public BigDecimal getTotalBalancesCommitted() {
-        return jdbcTemplate.queryForObject("SELECT SUM(balance) FROM account", BigDecimal.class);
+        return fromMinor(jdbcTemplate.queryForObject("SELECT COALESCE(SUM(balance_minor), 0) FROM account", Long.class));
     }
 }
\ No newline at end of file
@@ -18,6 +18,9 @@ repositories {
 
 dependencies {
     implementation("com.mysql:mysql-connector-j:9.5.0")
+    implementation(project(":minor-units"))
+    // migrations every module runs the same, picked up from classpath:schema next to the module's own
+    runtimeOnly(project(":account-schema"))
 
     testImplementation(platform("org.junit:junit-bom:5.13.4"))
     // junit-platform-launcher required https://github.com/gradle/gradle/issues/34512
@@ -33,5 +36,20 @@ dependencies {
 }
 
 tasks.test {
-    useJUnitPlatform()
+    useJUnitPlatform {
+        excludeTags("benchmark")
+    }
+}
+
+tasks.register<Test>("benchmark") {
+    description = "Runs the benchmarks, they take minutes and only print results."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("benchmark")
+    }
+    testLogging {
+        showStandardStreams = true
+    }
 }
\ No newline at end of file
@@ -5,6 +5,13 @@ import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.mcnealysoftware.minorunits.MinorUnits.fromMinor;
+import static com.mcnealysoftware.minorunits.MinorUnits.toMinor;
 
 /**
  * DAO for accounts and their balances. Allows for creating accounts, getting balances, and moving money between accounts.
@@ -26,9 +33,9 @@ public record AccountDao(DataSource dataSource, int isolationLevel) {
             connection.setAutoCommit(false);
             connection.setReadOnly(false);
             connection.setTransactionIsolation(isolationLevel);
-            final var statement = connection.prepareStatement("INSERT INTO account (name, balance) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS);
+            final var statement = connection.prepareStatement("INSERT INTO account (name, balance_minor) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS);
             statement.setString(1, name);
-            statement.setBigDecimal(2, balance);
+            statement.setLong(2, toMinor(balance));
             statement.executeUpdate();
             final var resultSet = statement.getGeneratedKeys();
             resultSet.next();
@@ -44,19 +51,26 @@ public record AccountDao(DataSource dataSource, int isolationLevel) {
      * Gets the balance of an account.
      */
     public BigDecimal getBalance(long accountId) {
+        return fromMinor(getBalanceMinor(accountId));
+    }
+
+    /**
+     * Gets the balance of an account in minor units.
+     */
+    public long getBalanceMinor(long accountId) {
         try (final Connection connection = dataSource.getConnection()) {
             connection.setAutoCommit(false);
             connection.setReadOnly(true);
             connection.setTransactionIsolation(isolationLevel);
 
-            final var statement = connection.prepareStatement("SELECT balance FROM account WHERE id = ?");
+            final var statement = connection.prepareStatement("SELECT balance_minor FROM account WHERE id = ?");
             statement.setLong(1, accountId);
             final var resultSet = statement.executeQuery();
             resultSet.next();
-            final var id = resultSet.getBigDecimal(1);
+            final var balance = resultSet.getLong(1);
 
             connection.commit();
-            return id;
+            return balance;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -66,17 +80,24 @@ public record AccountDao(DataSource dataSource, int isolationLevel) {
      * Moves an amount from one account to another. Uses one transaction to decrement an account and increment another.
      */
     public void moveAmount(long fromAccountId, long toAccountId, BigDecimal amount) {
+        moveAmountMinor(fromAccountId, toAccountId, toMinor(amount));
+    }
+
+    /**
+     * Moves an amount in minor units from one account to another.
+     */
+    public void moveAmountMinor(long fromAccountId, long toAccountId, long amount) {
         try (final Connection connection = dataSource.getConnection()) {
             connection.setAutoCommit(false);
             connection.setReadOnly(false);
             connection.setTransactionIsolation(isolationLevel);
 
-            final var statement1 = connection.prepareStatement("UPDATE account SET balance = balance - ? WHERE id = ?");
-            statement1.setBigDecimal(1, amount);
+            final var statement1 = connection.prepareStatement("UPDATE account SET balance_minor = balance_minor - ? WHERE id = ?");
+            statement1.setLong(1, amount);
             statement1.setLong(2, fromAccountId);
             statement1.executeUpdate();
-            final var statement2 = connection.prepareStatement("UPDATE account SET balance = balance + ? WHERE id = ?");
-            statement2.setBigDecimal(1, amount);
+            final var statement2 = connection.prepareStatement("UPDATE account SET balance_minor = balance_minor + ? WHERE id = ?");
+            statement2.setLong(1, amount);
             statement2.setLong(2, toAccountId);
             statement2.executeUpdate();
 
@@ -86,6 +107,49 @@ public record AccountDao(DataSource dataSource, int isolationLevel) {
         }
     }
 
+    /**
+     * Moves an amount from one account to another by reading both balances FOR UPDATE and writing the new values.
+     * The rows are always locked lowest account ID first, so opposite transfers between two accounts can't deadlock.
+     */
+    public void moveAmountLocking(long fromAccountId, long toAccountId, BigDecimal amount) {
+        moveAmountLockingMinor(fromAccountId, toAccountId, toMinor(amount));
+    }
+
+    /**
+     * Moves an amount in minor units from one account to another, locking both rows first.
+     */
+    public void moveAmountLockingMinor(long fromAccountId, long toAccountId, long amount) {
+        try (final Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(false);
+            connection.setTransactionIsolation(isolationLevel);
+
+            final var lockStatement = connection.prepareStatement("SELECT balance_minor FROM account WHERE id = ? FOR UPDATE");
+            final var updateStatement = connection.prepareStatement("UPDATE account SET balance_minor = ? WHERE id = ?");
+            final var firstAccountId = Math.min(fromAccountId, toAccountId);
+            final var secondAccountId = Math.max(fromAccountId, toAccountId);
+            final var firstAmount = firstAccountId == fromAccountId ? -amount : amount;
+
+            lockStatement.setLong(1, firstAccountId);
+            final var firstResultSet = lockStatement.executeQuery();
+            firstResultSet.next();
+            updateStatement.setLong(1, firstResultSet.getLong(1) + firstAmount);
+            updateStatement.setLong(2, firstAccountId);
+            updateStatement.executeUpdate();
+
+            lockStatement.setLong(1, secondAccountId);
+            final var secondResultSet = lockStatement.executeQuery();
+            secondResultSet.next();
+            updateStatement.setLong(1, secondResultSet.getLong(1) - firstAmount);
+            updateStatement.setLong(2, secondAccountId);
+            updateStatement.executeUpdate();
+
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * Gets the total balance of all accounts.
      * NOTE: This function has interesting behavior based on the isolation level.
@@ -96,13 +160,131 @@ public record AccountDao(DataSource dataSource, int isolationLevel) {
             connection.setReadOnly(true);
             connection.setTransactionIsolation(isolationLevel);
 
-            final var statement = connection.prepareStatement("SELECT SUM(balance) FROM account");
+            final var statement = connection.prepareStatement("SELECT SUM(balance_minor) FROM account");
             final var resultSet = statement.executeQuery();
             resultSet.next();
-            final var id = resultSet.getBigDecimal(1);
+            final var total = resultSet.getLong(1);
 
             connection.commit();
-            return id;
+            return fromMinor(total);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Gets the total balance of all accounts by reading them a page at a time in one transaction, the way a client
+     * pages through them with getAccountsRepeatableRead in the Spring modules. Every page is a statement of its own, so
+     * with READ_COMMITTED a transfer that commits between two pages can be counted on one side only, REPEATABLE_READ
+     * reads every page from the same snapshot.
+     *
+     * @param pageSize Accounts per page.
+     */
+    public BigDecimal getTotalBalancesPaged(int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be at least 1");
+        }
+        try (final Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            connection.setTransactionIsolation(isolationLevel);
+
+            // every page starts after the last ID of the previous one
+            final var statement = connection.prepareStatement("SELECT id, balance_minor FROM account WHERE id > ? ORDER BY id LIMIT ?");
+            statement.setInt(2, pageSize);
+            var total = 0L;
+            var afterId = 0L;
+            var rows = pageSize;
+            while (rows == pageSize) {
+                statement.setLong(1, afterId);
+                final var resultSet = statement.executeQuery();
+                rows = 0;
+                while (resultSet.next()) {
+                    afterId = resultSet.getLong(1);
+                    total += resultSet.getLong(2);
+                    rows++;
+                }
+            }
+
+            connection.commit();
+            return fromMinor(total);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Gets the total balance of all accounts by splitting the primary key range into chunks and summing them on
+     * separate connections at the same time. Each chunk is its own transaction, so unlike {@link #getTotalBalances()}
+     * the result is not read from one snapshot of the database. It is exact when nothing moves while it runs,
+     * which is what reconciliation after the close of day needs.
+     *
+     * @param chunks       Number of ranges, and so connections, to use at most.
+     * @param boundToMaxId Only count accounts up to the MAX(id) seen at the start, accounts created while the sum runs
+     *                     are left out. Makes the most sense with REPEATABLE_READ.
+     */
+    public BigDecimal getTotalBalancesParallel(int chunks, boolean boundToMaxId) {
+        if (chunks < 1) {
+            throw new IllegalArgumentException("chunks must be at least 1");
+        }
+        final long minId;
+        final long maxId;
+        try (final Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            connection.setTransactionIsolation(isolationLevel);
+
+            // both come from the ends of the primary key index
+            final var resultSet = connection.prepareStatement("SELECT MIN(id), MAX(id) FROM account").executeQuery();
+            resultSet.next();
+            minId = resultSet.getLong(1);
+            maxId = resultSet.getLong(2);
+            final var empty = resultSet.wasNull();
+
+            connection.commit();
+            if (empty) {
+                return fromMinor(0L);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        final var chunkSize = Math.max(1L, (maxId - minId + chunks) / chunks);
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final var totals = new ArrayList<Future<Long>>();
+            for (long fromId = minId; fromId <= maxId; fromId += chunkSize) {
+                final var chunkFromId = fromId;
+                final var last = fromId + chunkSize > maxId;
+                // the last chunk is open ended unless bound, so accounts created in the meantime are not lost
+                final var chunkToId = last && !boundToMaxId ? Long.MAX_VALUE : Math.min(fromId + chunkSize - 1, maxId);
+                totals.add(executor.submit(() -> getRangeTotalBalanceMinor(chunkFromId, chunkToId)));
+            }
+
+            var total = 0L;
+            for (Future<Long> chunkTotal : totals) {
+                total += chunkTotal.get();
+            }
+            return fromMinor(total);
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private long getRangeTotalBalanceMinor(long fromId, long toId) {
+        try (final Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            connection.setTransactionIsolation(isolationLevel);
+
+            final var statement = connection.prepareStatement("SELECT COALESCE(SUM(balance_minor), 0) FROM account WHERE id BETWEEN ? AND ?");
+            statement.setLong(1, fromId);
+            statement.setLong(2, toId);
+            final var resultSet = statement.executeQuery();
+            resultSet.next();
+            final var total = resultSet.getLong(1);
+
+            connection.commit();
+            return total;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
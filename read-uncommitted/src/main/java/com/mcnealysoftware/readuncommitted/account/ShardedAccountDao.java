@@ -0,0 +1,288 @@
+package com.mcnealysoftware.readuncommitted.account;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.mcnealysoftware.minorunits.MinorUnits.fromMinor;
+import static com.mcnealysoftware.minorunits.MinorUnits.toMinor;
+
+/**
+ * Same operations as {@link AccountDao}, but the accounts are split over several databases.
+ * Every shard hands out IDs from its own auto increment, shard {@code n} of {@code N} only uses {@code n + 1 + k * N},
+ * so an ID is unique across all shards and tells which shard owns it. The connections of a shard are set up for that
+ * once, with {@link #connectionInitSql}.
+ * <p>
+ * A transfer between two accounts on the same shard is one local transaction. A transfer between shards is a saga:
+ * debit and write a PENDING saga on the source shard, credit on the target shard, then mark the saga DONE.
+ * The transfer_saga table is the recovery log, {@link #recover()} finishes every saga that is still PENDING.
+ *
+ * @param shards         One DataSource per shard, each with {@link #connectionInitSql} run on every new connection,
+ *                       like with HikariConfig.setConnectionInitSql. The order decides the IDs, so it must never change.
+ * @param isolationLevel Isolation level of every local transaction.
+ */
+public record ShardedAccountDao(List<DataSource> shards, int isolationLevel) {
+
+    /**
+     * Makes the auto increment of a connection to shard {@code shard} of {@code shards} only hand out the IDs of that
+     * shard. Session state, so it belongs to the pool, where it is set once per connection and never changes.
+     */
+    public static String connectionInitSql(int shard, int shards) {
+        return "SET SESSION auto_increment_increment = " + shards + ", auto_increment_offset = " + (shard + 1);
+    }
+
+    /**
+     * Creates a new account on a random shard.
+     *
+     * @return Account ID, unique across all shards.
+     */
+    public long createAccount(String name, BigDecimal balance) {
+        final var shard = ThreadLocalRandom.current().nextInt(shards.size());
+        try (final Connection connection = shards.get(shard).getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(false);
+            connection.setTransactionIsolation(isolationLevel);
+
+            final var statement = connection.prepareStatement("INSERT INTO account (name, balance_minor) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS);
+            statement.setString(1, name);
+            statement.setLong(2, toMinor(balance));
+            statement.executeUpdate();
+            final var resultSet = statement.getGeneratedKeys();
+            resultSet.next();
+            final var id = resultSet.getLong(1);
+            connection.commit();
+            return id;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public BigDecimal getBalance(long accountId) {
+        return fromMinor(getBalanceMinor(accountId));
+    }
+
+    public long getBalanceMinor(long accountId) {
+        return shardDao(shardOf(accountId)).getBalanceMinor(accountId);
+    }
+
+    public void moveAmount(long fromAccountId, long toAccountId, BigDecimal amount) {
+        moveAmountMinor(fromAccountId, toAccountId, toMinor(amount));
+    }
+
+    public void moveAmountMinor(long fromAccountId, long toAccountId, long amount) {
+        final var fromShard = shardOf(fromAccountId);
+        final var toShard = shardOf(toAccountId);
+        if (fromShard == toShard) {
+            shardDao(fromShard).moveAmountMinor(fromAccountId, toAccountId, amount);
+            return;
+        }
+
+        final var sagaId = debit(fromShard, fromAccountId, toAccountId, amount);
+        complete(fromShard, sagaId, fromAccountId, toAccountId, amount);
+    }
+
+    /**
+     * Sums every shard at the same time. The shards are not read at one point in time, a cross-shard transfer
+     * that is in flight is counted through its PENDING saga on the source shard, but can be counted twice between
+     * the credit and the saga being marked DONE.
+     */
+    public BigDecimal getTotalBalances() {
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final var totals = new ArrayList<Future<Long>>();
+            for (int shard = 0; shard < shards.size(); shard++) {
+                final var dataSource = shards.get(shard);
+                totals.add(executor.submit(() -> getShardTotalBalance(dataSource)));
+            }
+
+            var total = 0L;
+            for (Future<Long> shardTotal : totals) {
+                total += shardTotal.get();
+            }
+            return fromMinor(total);
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Finishes every cross-shard transfer that was interrupted after the debit. Safe to run at any time and
+     * more than once, a credit is only ever applied once per saga.
+     *
+     * @return Number of sagas that were finished.
+     */
+    public int recover() {
+        var recovered = 0;
+        for (int shard = 0; shard < shards.size(); shard++) {
+            for (Saga saga : getPendingSagas(shard)) {
+                complete(shard, saga.id(), saga.fromAccountId(), saga.toAccountId(), saga.amount());
+                recovered++;
+            }
+        }
+        return recovered;
+    }
+
+    int shardOf(long accountId) {
+        // floorMod, an ID that can't exist still lands on a shard and isn't found there
+        return (int) Math.floorMod(accountId - 1, (long) shards.size());
+    }
+
+    private AccountDao shardDao(int shard) {
+        return new AccountDao(shards.get(shard), isolationLevel);
+    }
+
+    private List<Saga> getPendingSagas(int shard) {
+        try (final Connection connection = shards.get(shard).getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            connection.setTransactionIsolation(isolationLevel);
+
+            final var statement = connection.prepareStatement("SELECT id, from_account_id, to_account_id, amount_minor FROM transfer_saga WHERE state = 'PENDING'");
+            final var resultSet = statement.executeQuery();
+            final var sagas = new ArrayList<Saga>();
+            while (resultSet.next()) {
+                sagas.add(new Saga(resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3), resultSet.getLong(4)));
+            }
+
+            connection.commit();
+            return sagas;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private long getShardTotalBalance(DataSource dataSource) throws SQLException {
+        try (final Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            connection.setTransactionIsolation(isolationLevel);
+
+            final var statement = connection.prepareStatement("SELECT (SELECT COALESCE(SUM(balance_minor), 0) FROM account) + (SELECT COALESCE(SUM(amount_minor), 0) FROM transfer_saga WHERE state = 'PENDING')");
+            final var resultSet = statement.executeQuery();
+            resultSet.next();
+            final var total = resultSet.getLong(1);
+
+            connection.commit();
+            return total;
+        }
+    }
+
+    /**
+     * First step of the saga. The debit and the PENDING saga commit together on the source shard.
+     *
+     * @return Saga ID, unique on the source shard.
+     */
+    private long debit(int shard, long fromAccountId, long toAccountId, long amount) {
+        try (final Connection connection = shards.get(shard).getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(false);
+            connection.setTransactionIsolation(isolationLevel);
+
+            final var debitStatement = connection.prepareStatement("UPDATE account SET balance_minor = balance_minor - ? WHERE id = ?");
+            debitStatement.setLong(1, amount);
+            debitStatement.setLong(2, fromAccountId);
+            if (debitStatement.executeUpdate() != 1) {
+                connection.rollback();
+                throw new IllegalArgumentException("No account " + fromAccountId);
+            }
+
+            final var sagaStatement = connection.prepareStatement("INSERT INTO transfer_saga (from_account_id, to_account_id, amount_minor, state) VALUES (?, ?, ?, 'PENDING')", Statement.RETURN_GENERATED_KEYS);
+            sagaStatement.setLong(1, fromAccountId);
+            sagaStatement.setLong(2, toAccountId);
+            sagaStatement.setLong(3, amount);
+            sagaStatement.executeUpdate();
+            final var resultSet = sagaStatement.getGeneratedKeys();
+            resultSet.next();
+            final var sagaId = resultSet.getLong(1);
+
+            connection.commit();
+            return sagaId;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Credits the target shard and marks the saga DONE, or refunds the source account when the target account
+     * does not exist. Both steps are idempotent so a crash anywhere in here can be resumed by {@link #recover()}.
+     */
+    private void complete(int fromShard, long sagaId, long fromAccountId, long toAccountId, long amount) {
+        if (credit(fromShard, sagaId, toAccountId, amount)) {
+            finish(fromShard, sagaId, fromAccountId, 0, "DONE");
+        } else {
+            finish(fromShard, sagaId, fromAccountId, amount, "COMPENSATED");
+        }
+    }
+
+    /**
+     * @return false when the target account does not exist and the saga needs to be compensated.
+     */
+    private boolean credit(int fromShard, long sagaId, long toAccountId, long amount) {
+        try (final Connection connection = shards.get(shardOf(toAccountId)).getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(false);
+            connection.setTransactionIsolation(isolationLevel);
+
+            // the primary key makes a second credit for the same saga fail
+            final var appliedStatement = connection.prepareStatement("INSERT INTO transfer_saga_applied (source_shard, saga_id) VALUES (?, ?)");
+            appliedStatement.setInt(1, fromShard);
+            appliedStatement.setLong(2, sagaId);
+            try {
+                appliedStatement.executeUpdate();
+            } catch (SQLIntegrityConstraintViolationException e) {
+                connection.rollback();
+                return true;
+            }
+
+            final var creditStatement = connection.prepareStatement("UPDATE account SET balance_minor = balance_minor + ? WHERE id = ?");
+            creditStatement.setLong(1, amount);
+            creditStatement.setLong(2, toAccountId);
+            if (creditStatement.executeUpdate() != 1) {
+                connection.rollback();
+                return false;
+            }
+
+            connection.commit();
+            return true;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @param refund Amount to give back to the source account, 0 when the credit went through.
+     */
+    private void finish(int fromShard, long sagaId, long fromAccountId, long refund, String state) {
+        try (final Connection connection = shards.get(fromShard).getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(false);
+            connection.setTransactionIsolation(isolationLevel);
+
+            final var stateStatement = connection.prepareStatement("UPDATE transfer_saga SET state = ? WHERE id = ? AND state = 'PENDING'");
+            stateStatement.setString(1, state);
+            stateStatement.setLong(2, sagaId);
+            // only refund when this call is the one that moved the saga out of PENDING
+            if (stateStatement.executeUpdate() == 1 && refund != 0) {
+                final var refundStatement = connection.prepareStatement("UPDATE account SET balance_minor = balance_minor + ? WHERE id = ?");
+                refundStatement.setLong(1, refund);
+                refundStatement.setLong(2, fromAccountId);
+                refundStatement.executeUpdate();
+            }
+
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private record Saga(long id, long fromAccountId, long toAccountId, long amount) {
+    }
+}
@@ -0,0 +1,16 @@
+CREATE TABLE IF NOT EXISTS transfer_saga (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    from_account_id BIGINT NOT NULL,
+    to_account_id BIGINT NOT NULL,
+    amount DECIMAL NOT NULL,
+    state VARCHAR(16) NOT NULL,
+    timestamp TIMESTAMP DEFAULT NOW(),
+    INDEX transfer_saga_state (state)
+);
+
+CREATE TABLE IF NOT EXISTS transfer_saga_applied (
+    source_shard INT NOT NULL,
+    saga_id BIGINT NOT NULL,
+    timestamp TIMESTAMP DEFAULT NOW(),
+    PRIMARY KEY (source_shard, saga_id)
+);
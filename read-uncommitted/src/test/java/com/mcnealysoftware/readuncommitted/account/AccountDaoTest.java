@@ -131,6 +131,95 @@ public class AccountDaoTest {
         });
     }
 
+    @Test
+    void moveAccountTestConcurrentLockingSerializable() throws SQLException, InterruptedException {
+        setup(connection -> {
+            final var dao = new AccountDao(connection, Connection.TRANSACTION_SERIALIZABLE);
+
+            final var alice = dao.createAccount("Alice", BigDecimal.valueOf(1000L));
+            final var bob = dao.createAccount("Bob", BigDecimal.valueOf(2000L));
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 100; i++) {
+                    executor.submit(() -> {
+                        dao.moveAmountLocking(alice, bob, BigDecimal.valueOf(2L));
+                        dao.moveAmountLocking(bob, alice, BigDecimal.valueOf(1L));
+                    });
+                }
+
+                executor.shutdown();
+                executor.awaitTermination(100, TimeUnit.SECONDS);
+            }
+
+            assertEquals(900L, dao.getBalance(alice).longValue());
+            assertEquals(2100L, dao.getBalance(bob).longValue());
+            assertEquals(3000L, dao.getTotalBalances().longValue());
+        });
+    }
+
+    @Test
+    void getTotalBalancesPagedTest() throws SQLException, InterruptedException {
+        setup(connection -> {
+            final var dao = new AccountDao(connection, Connection.TRANSACTION_REPEATABLE_READ);
+
+            assertEquals(0L, dao.getTotalBalancesPaged(10).longValue());
+            for (int i = 0; i < 25; i++) {
+                dao.createAccount("Account " + i, BigDecimal.valueOf(100L));
+            }
+
+            assertEquals(2500L, dao.getTotalBalancesPaged(1).longValue());
+            assertEquals(2500L, dao.getTotalBalancesPaged(5).longValue());
+            assertEquals(2500L, dao.getTotalBalancesPaged(10).longValue());
+            assertEquals(2500L, dao.getTotalBalancesPaged(100).longValue());
+        });
+    }
+
+    @Test
+    void getTotalBalancesParallelTest() throws SQLException, InterruptedException {
+        setup(connection -> {
+            final var dao = new AccountDao(connection, Connection.TRANSACTION_REPEATABLE_READ);
+
+            assertEquals(0L, dao.getTotalBalancesParallel(4, true).longValue());
+            for (int i = 0; i < 25; i++) {
+                dao.createAccount("Account " + i, BigDecimal.valueOf(100L));
+            }
+
+            assertEquals(2500L, dao.getTotalBalancesParallel(1, false).longValue());
+            assertEquals(2500L, dao.getTotalBalancesParallel(4, false).longValue());
+            assertEquals(2500L, dao.getTotalBalancesParallel(4, true).longValue());
+            assertEquals(2500L, dao.getTotalBalancesParallel(100, true).longValue());
+        });
+    }
+
+    @Test
+    void getTotalBalancesParallelTestConcurrent() throws SQLException, InterruptedException {
+        setup(connection -> {
+            final var dao = new AccountDao(connection, Connection.TRANSACTION_REPEATABLE_READ);
+
+            final var alice = dao.createAccount("Alice", BigDecimal.valueOf(1000L));
+            final var bob = dao.createAccount("Bob", BigDecimal.valueOf(2000L));
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 100; i++) {
+                    executor.submit(() -> {
+                        dao.moveAmountLocking(alice, bob, BigDecimal.valueOf(2L));
+                        dao.moveAmountLocking(bob, alice, BigDecimal.valueOf(1L));
+                    });
+                    if (i % 10 == 0) {
+                        // chunks are separate transactions, so only the final total is checked
+                        executor.submit(() -> dao.getTotalBalancesParallel(2, true));
+                    }
+                }
+
+                executor.shutdown();
+                executor.awaitTermination(100, TimeUnit.SECONDS);
+            }
+
+            assertEquals(3000L, dao.getTotalBalancesParallel(2, true).longValue());
+            assertEquals(dao.getTotalBalances(), dao.getTotalBalancesParallel(2, false));
+        });
+    }
+
     private BigDecimal resolveFuture(Future<BigDecimal> f) {
         try {
             return f.get();
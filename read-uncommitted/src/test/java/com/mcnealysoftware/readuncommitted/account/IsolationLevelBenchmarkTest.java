@@ -0,0 +1,202 @@
+package com.mcnealysoftware.readuncommitted.account;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.mysql.MySQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Cost of each isolation level. Runs the same workload, transfers between random accounts with a concurrent audit of
+ * the total balance, for every isolation level and transfer implementation and prints one row per combination. Audits
+ * take turns between one SUM and reading the accounts page by page in one transaction. An audit that fails is counted
+ * as an error, not as an anomaly.
+ * Run with {@code ./gradlew :read-uncommitted:benchmark}.
+ */
+@Tag("benchmark")
+public class IsolationLevelBenchmarkTest {
+    private static final int ACCOUNTS = 20;
+    private static final long INITIAL_BALANCE = 1000L;
+    private static final int TRANSFERS = 2000;
+    private static final int AUDIT_EVERY = 10;
+    private static final int AUDIT_PAGE_SIZE = 5;
+
+    @FunctionalInterface
+    private interface Transfer {
+        void move(AccountDao dao, long fromAccountId, long toAccountId, long amount);
+    }
+
+    private record Result(String isolation, String implementation, double throughput, double transferP99Millis,
+                          double auditP99Millis, int failedTransfers, long lockWaits, long deadlocks,
+                          double sumAnomalyRate, double pagedAnomalyRate, int failedAudits) {
+        @Override
+        public String toString() {
+            return String.format("%-18s %-10s %10.1f %12.2f %12.2f %8d %10d %10d %11.1f%% %11.1f%% %8d",
+                    isolation, implementation, throughput, transferP99Millis, auditP99Millis, failedTransfers,
+                    lockWaits, deadlocks, sumAnomalyRate * 100, pagedAnomalyRate * 100, failedAudits);
+        }
+    }
+
+    @Test
+    void isolationLevelCostMatrix() throws SQLException, InterruptedException {
+        final var isolationLevels = new LinkedHashMap<String, Integer>();
+        isolationLevels.put("READ_UNCOMMITTED", Connection.TRANSACTION_READ_UNCOMMITTED);
+        isolationLevels.put("READ_COMMITTED", Connection.TRANSACTION_READ_COMMITTED);
+        isolationLevels.put("REPEATABLE_READ", Connection.TRANSACTION_REPEATABLE_READ);
+        isolationLevels.put("SERIALIZABLE", Connection.TRANSACTION_SERIALIZABLE);
+
+        final var implementations = new LinkedHashMap<String, Transfer>();
+        implementations.put("update", AccountDao::moveAmountMinor);
+        implementations.put("locking", AccountDao::moveAmountLockingMinor);
+
+        try (final var mysql = new MySQLContainer(DockerImageName.parse("mysql:8.0.36"))
+                .withUsername("root")) {
+            mysql.start();
+            final var config = new HikariConfig();
+            config.setJdbcUrl(mysql.getJdbcUrl());
+            config.setUsername(mysql.getUsername());
+            config.setPassword(mysql.getPassword());
+            config.setDriverClassName(mysql.getDriverClassName());
+            try (var datasource = new HikariDataSource(config)) {
+                final var flyway = Flyway.configure()
+                        .dataSource(datasource).locations("classpath:schema").load();
+                flyway.migrate();
+
+                System.out.printf("%-18s %-10s %10s %12s %12s %8s %10s %10s %12s %12s %8s%n",
+                        "isolation", "transfer", "tx/s", "p99 move ms", "p99 audit ms", "failed",
+                        "lock waits", "deadlocks", "sum anomaly", "page anomaly", "errors");
+                for (Map.Entry<String, Integer> isolation : isolationLevels.entrySet()) {
+                    for (Map.Entry<String, Transfer> implementation : implementations.entrySet()) {
+                        final var result = run(datasource, isolation.getKey(), isolation.getValue(),
+                                implementation.getKey(), implementation.getValue());
+                        System.out.println(result);
+                    }
+                }
+            }
+        }
+    }
+
+    private Result run(DataSource dataSource, String isolationName, int isolationLevel, String implementationName,
+                       Transfer transfer) throws SQLException, InterruptedException {
+        try (var connection = dataSource.getConnection()) {
+            connection.createStatement().execute("TRUNCATE TABLE account");
+        }
+        final var dao = new AccountDao(dataSource, isolationLevel);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            dao.createAccount("Account " + i, BigDecimal.valueOf(INITIAL_BALANCE));
+        }
+        final var expectedTotal = dao.getTotalBalances();
+
+        final var transferNanos = new long[TRANSFERS];
+        final var auditNanos = new ConcurrentLinkedQueue<Long>();
+        final var failedTransfers = new AtomicInteger();
+        final var clientDeadlocks = new AtomicInteger();
+        final var sumAudits = new AtomicInteger();
+        final var sumAnomalies = new AtomicInteger();
+        final var pagedAudits = new AtomicInteger();
+        final var pagedAnomalies = new AtomicInteger();
+        final var failedAudits = new AtomicInteger();
+
+        final var lockWaitsBefore = serverCounter(dataSource, "SELECT VARIABLE_VALUE FROM performance_schema.global_status WHERE VARIABLE_NAME = 'Innodb_row_lock_waits'");
+        final var deadlocksBefore = serverCounter(dataSource, "SELECT COUNT FROM information_schema.INNODB_METRICS WHERE NAME = 'lock_deadlocks'");
+        final var start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < TRANSFERS; i++) {
+                final var index = i;
+                executor.submit(() -> {
+                    final var random = ThreadLocalRandom.current();
+                    final long from = random.nextInt(ACCOUNTS) + 1;
+                    long to = random.nextInt(ACCOUNTS - 1) + 1;
+                    if (to >= from) {
+                        to++;
+                    }
+                    final var transferStart = System.nanoTime();
+                    try {
+                        transfer.move(dao, from, to, 100);
+                    } catch (RuntimeException e) {
+                        failedTransfers.incrementAndGet();
+                        if (e.getCause() instanceof SQLTransactionRollbackException) {
+                            clientDeadlocks.incrementAndGet();
+                        }
+                    }
+                    transferNanos[index] = System.nanoTime() - transferStart;
+                });
+                if (i % AUDIT_EVERY == 0) {
+                    final var paged = i / AUDIT_EVERY % 2 == 1;
+                    executor.submit(() -> {
+                        final var auditStart = System.nanoTime();
+                        try {
+                            final var total = paged ? dao.getTotalBalancesPaged(AUDIT_PAGE_SIZE) : dao.getTotalBalances();
+                            (paged ? pagedAudits : sumAudits).incrementAndGet();
+                            if (total.compareTo(expectedTotal) != 0) {
+                                (paged ? pagedAnomalies : sumAnomalies).incrementAndGet();
+                            }
+                        } catch (RuntimeException e) {
+                            // a deadlock or lock wait timeout says nothing about what the audit would have read
+                            failedAudits.incrementAndGet();
+                        }
+                        auditNanos.add(System.nanoTime() - auditStart);
+                    });
+                }
+            }
+
+            executor.shutdown();
+            executor.awaitTermination(300, TimeUnit.SECONDS);
+        }
+        final var elapsedNanos = System.nanoTime() - start;
+        final var lockWaits = serverCounter(dataSource, "SELECT VARIABLE_VALUE FROM performance_schema.global_status WHERE VARIABLE_NAME = 'Innodb_row_lock_waits'") - lockWaitsBefore;
+        final var deadlocks = serverCounter(dataSource, "SELECT COUNT FROM information_schema.INNODB_METRICS WHERE NAME = 'lock_deadlocks'") - deadlocksBefore;
+
+        // whatever the isolation level, money must not appear or disappear once everything has committed
+        assertEquals(0, expectedTotal.compareTo(dao.getTotalBalances()));
+
+        final var audits = auditNanos.stream().mapToLong(Long::longValue).toArray();
+        return new Result(isolationName, implementationName,
+                (TRANSFERS - failedTransfers.get()) / (elapsedNanos / 1e9),
+                p99Millis(transferNanos),
+                p99Millis(audits),
+                failedTransfers.get(),
+                lockWaits,
+                Math.max(deadlocks, clientDeadlocks.get()),
+                rate(sumAnomalies.get(), sumAudits.get()),
+                rate(pagedAnomalies.get(), pagedAudits.get()),
+                failedAudits.get());
+    }
+
+    private static double rate(int count, int total) {
+        return total == 0 ? 0.0 : (double) count / total;
+    }
+
+    private static double p99Millis(long[] nanos) {
+        final var sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(sorted.length * 0.99) - 1] / 1e6;
+    }
+
+    private static long serverCounter(DataSource dataSource, String sql) throws SQLException {
+        try (var connection = dataSource.getConnection()) {
+            final var resultSet = connection.createStatement().executeQuery(sql);
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+}
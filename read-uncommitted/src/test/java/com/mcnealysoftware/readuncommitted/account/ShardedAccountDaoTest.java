@@ -0,0 +1,138 @@
+package com.mcnealysoftware.readuncommitted.account;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.mysql.MySQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ShardedAccountDaoTest {
+    @FunctionalInterface
+    public interface CheckedConsumer<T> {
+        void accept(T t) throws SQLException, InterruptedException;
+    }
+
+    private void setup(CheckedConsumer<List<DataSource>> f) throws SQLException, InterruptedException {
+        try (final var mysql1 = new MySQLContainer(DockerImageName.parse("mysql:8.0.36"));
+             final var mysql2 = new MySQLContainer(DockerImageName.parse("mysql:8.0.36"))) {
+            mysql1.start();
+            mysql2.start();
+            try (var datasource1 = datasource(mysql1, 0); var datasource2 = datasource(mysql2, 1)) {
+                f.accept(List.of(datasource1, datasource2));
+            }
+        }
+    }
+
+    private HikariDataSource datasource(MySQLContainer mysql, int shard) {
+        final var config = new HikariConfig();
+        config.setJdbcUrl(mysql.getJdbcUrl());
+        config.setUsername(mysql.getUsername());
+        config.setPassword(mysql.getPassword());
+        config.setDriverClassName(mysql.getDriverClassName());
+        config.setConnectionInitSql(ShardedAccountDao.connectionInitSql(shard, 2));
+        final var datasource = new HikariDataSource(config);
+        final var flyway = Flyway.configure()
+                .dataSource(datasource).locations("classpath:schema").load();
+        flyway.migrate();
+        return datasource;
+    }
+
+    @Test
+    void createAccountTest() throws SQLException, InterruptedException {
+        setup(shards -> {
+            final var dao = new ShardedAccountDao(shards, Connection.TRANSACTION_READ_COMMITTED);
+
+            final var ids = new HashSet<Long>();
+            final var shardsUsed = new HashSet<Integer>();
+            for (int i = 0; i < 20; i++) {
+                final var id = dao.createAccount("Alice", BigDecimal.valueOf(1000L));
+                ids.add(id);
+                shardsUsed.add(dao.shardOf(id));
+                assertEquals(1000L, dao.getBalance(id).longValue());
+            }
+
+            assertEquals(20, ids.size());
+            assertEquals(2, shardsUsed.size());
+            assertEquals(20000L, dao.getTotalBalances().longValue());
+        });
+    }
+
+    @Test
+    void moveAccountTestConcurrentCrossShard() throws SQLException, InterruptedException {
+        setup(shards -> {
+            final var dao = new ShardedAccountDao(shards, Connection.TRANSACTION_READ_COMMITTED);
+
+            final var alice = dao.createAccount("Alice", BigDecimal.valueOf(1000L));
+            var bob = dao.createAccount("Bob", BigDecimal.valueOf(2000L));
+            var expectedTotal = 3000L;
+            while (dao.shardOf(alice) == dao.shardOf(bob)) {
+                bob = dao.createAccount("Bob", BigDecimal.valueOf(2000L));
+                expectedTotal += 2000L;
+            }
+            final var to = bob;
+
+            final var totals = new LinkedList<Future<BigDecimal>>();
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 100; i++) {
+                    executor.submit(() -> dao.moveAmount(alice, to, BigDecimal.valueOf(1L)));
+                    if (i % 10 == 0) {
+                        totals.add(executor.submit(dao::getTotalBalances));
+                    }
+                }
+
+                executor.shutdown();
+                executor.awaitTermination(100, TimeUnit.SECONDS);
+            }
+
+            assertEquals(0, dao.recover());
+            assertEquals(900L, dao.getBalance(alice).longValue());
+            assertEquals(2100L, dao.getBalance(to).longValue());
+            // nothing made or lost, only the totals read while transfers were in flight may be off
+            assertEquals(expectedTotal, dao.getTotalBalances().longValue());
+            assertEquals(10, totals.size());
+            for (Future<BigDecimal> total : totals) {
+                assertDoesNotThrow(() -> total.get());
+            }
+        });
+    }
+
+    @Test
+    void moveAccountTestCompensated() throws SQLException, InterruptedException {
+        setup(shards -> {
+            final var dao = new ShardedAccountDao(shards, Connection.TRANSACTION_READ_COMMITTED);
+
+            final var alice = dao.createAccount("Alice", BigDecimal.valueOf(1000L));
+            // an id on the other shard that was never created
+            final var missing = alice + 1;
+            assertNotEquals(dao.shardOf(alice), dao.shardOf(missing));
+
+            dao.moveAmount(alice, missing, BigDecimal.valueOf(100L));
+            // IDs below 1 are never created either, they still land on a shard and are compensated the same way
+            assertNotEquals(dao.shardOf(alice), dao.shardOf(-missing));
+            dao.moveAmount(alice, -missing, BigDecimal.valueOf(100L));
+
+            assertEquals(1000L, dao.getBalance(alice).longValue());
+            assertEquals(1000L, dao.getTotalBalances().longValue());
+            assertThrows(RuntimeException.class, () -> dao.moveAmount(missing, alice, BigDecimal.valueOf(100L)));
+        });
+    }
+}
@@ -0,0 +1,20 @@
+package com.mcnealysoftware.rowmapper;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates a reader for a record, or a class through one of its constructors, named after the type with Reader
+ * added, like AccountReader for Account. It reads a row by column index, in the order of the components or
+ * parameters, so the select list has to start with those columns in that order, see {@link SelectOf}. Column names
+ * are the component names in snake_case, balanceMinor is balance_minor.
+ * <p>
+ * The reader has a static {@code read(ResultSet)}, and a {@code COLUMNS} constant with the select list. When Spring
+ * JDBC is on the classpath it's also a RowMapper.
+ */
+@Target({ElementType.TYPE, ElementType.CONSTRUCTOR})
+@Retention(RetentionPolicy.SOURCE)
+public @interface RowMapped {
+}
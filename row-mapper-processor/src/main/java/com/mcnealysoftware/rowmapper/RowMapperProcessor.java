@@ -0,0 +1,255 @@
+package com.mcnealysoftware.rowmapper;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Generates the readers of {@link RowMapped} types and checks {@link SelectOf} constants against them. The readers
+ * call the constructor with a getter by index per column, no column names are looked up and nothing is reflected on
+ * at run time.
+ */
+@SupportedAnnotationTypes({"com.mcnealysoftware.rowmapper.RowMapped", "com.mcnealysoftware.rowmapper.SelectOf"})
+public class RowMapperProcessor extends AbstractProcessor {
+
+    private static final String ROW_MAPPER = "org.springframework.jdbc.core.RowMapper";
+    private static final Pattern SELECT_LIST = Pattern.compile("(?is)^\\s*SELECT\\s+(.+?)\\s+FROM\\s");
+
+    /**
+     * @param getter ResultSet call with %d for the index.
+     */
+    private record Column(String name, String getter) {
+    }
+
+    /**
+     * Columns of the readers generated so far, by qualified name of the type they read.
+     */
+    private final Map<String, List<String>> columnsByType = new HashMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        // readers first, constants of this round are checked against them
+        for (Element element : roundEnv.getElementsAnnotatedWith(RowMapped.class)) {
+            generate(element);
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(SelectOf.class)) {
+            check((VariableElement) element);
+        }
+        return true;
+    }
+
+    private void generate(Element element) {
+        final TypeElement type;
+        final ExecutableElement constructor;
+        final List<String> names = new ArrayList<>();
+        if (element.getKind() == ElementKind.RECORD) {
+            type = (TypeElement) element;
+            final var components = type.getRecordComponents();
+            constructor = ElementFilter.constructorsIn(type.getEnclosedElements()).stream()
+                    .filter(candidate -> isCanonical(candidate, components.stream().map(Element::asType).toList()))
+                    .findFirst()
+                    .orElseThrow();
+            components.forEach(component -> names.add(component.getSimpleName().toString()));
+        } else if (element.getKind() == ElementKind.CONSTRUCTOR) {
+            constructor = (ExecutableElement) element;
+            type = (TypeElement) constructor.getEnclosingElement();
+            constructor.getParameters().forEach(parameter -> names.add(parameter.getSimpleName().toString()));
+        } else {
+            error("@RowMapped goes on a record or a constructor", element);
+            return;
+        }
+        if (constructor.getModifiers().contains(Modifier.PRIVATE) || type.getModifiers().contains(Modifier.PRIVATE)) {
+            error("@RowMapped needs a constructor the reader in the same package can call", element);
+            return;
+        }
+
+        final var columns = new ArrayList<Column>();
+        for (int i = 0; i < names.size(); i++) {
+            final var parameter = constructor.getParameters().get(i);
+            final var getter = getter(parameter.asType());
+            if (getter == null) {
+                error("No ResultSet getter for " + parameter.asType() + ", @RowMapped reads primitives, their boxes, String, BigDecimal and Instant", parameter);
+                return;
+            }
+            columns.add(new Column(snakeCase(names.get(i)), getter));
+        }
+        columnsByType.put(type.getQualifiedName().toString(), columns.stream().map(Column::name).toList());
+        write(type, columns);
+    }
+
+    private boolean isCanonical(ExecutableElement constructor, List<TypeMirror> componentTypes) {
+        final var parameters = constructor.getParameters();
+        if (parameters.size() != componentTypes.size()) {
+            return false;
+        }
+        for (int i = 0; i < parameters.size(); i++) {
+            if (!processingEnv.getTypeUtils().isSameType(parameters.get(i).asType(), componentTypes.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String getter(TypeMirror type) {
+        return switch (type.getKind()) {
+            case LONG -> "rs.getLong(%d)";
+            case INT -> "rs.getInt(%d)";
+            case DOUBLE -> "rs.getDouble(%d)";
+            case BOOLEAN -> "rs.getBoolean(%d)";
+            case DECLARED -> switch (type.toString()) {
+                case "java.lang.String" -> "rs.getString(%d)";
+                case "java.math.BigDecimal" -> "rs.getBigDecimal(%d)";
+                // null stays null instead of becoming 0
+                case "java.lang.Long", "java.lang.Integer", "java.lang.Double", "java.lang.Boolean" -> "rs.getObject(%d, " + type + ".class)";
+                case "java.time.Instant" -> "instant(rs, %d)";
+                default -> null;
+            };
+            default -> null;
+        };
+    }
+
+    static String snakeCase(String name) {
+        final var snakeCase = new StringBuilder();
+        for (char c : name.toCharArray()) {
+            if (Character.isUpperCase(c)) {
+                snakeCase.append('_').append(Character.toLowerCase(c));
+            } else {
+                snakeCase.append(c);
+            }
+        }
+        return snakeCase.toString();
+    }
+
+    private void write(TypeElement type, List<Column> columns) {
+        final var packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        final var readerName = readerName(type);
+        final var typeName = type.getQualifiedName().toString();
+        final var rowMapper = processingEnv.getElementUtils().getTypeElement(ROW_MAPPER) != null;
+
+        try (final var out = new PrintWriter(processingEnv.getFiler().createSourceFile(packageName + "." + readerName, type).openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("@javax.annotation.processing.Generated(\"" + RowMapperProcessor.class.getName() + "\")");
+            out.println("public final class " + readerName + (rowMapper ? " implements " + ROW_MAPPER + "<" + typeName + ">" : "") + " {");
+            out.println();
+            out.println("    public static final String COLUMNS = \"" + String.join(", ", columns.stream().map(Column::name).toList()) + "\";");
+            out.println();
+            if (!rowMapper) {
+                out.println("    private " + readerName + "() {");
+                out.println("    }");
+                out.println();
+            }
+            out.println("    public static " + typeName + " read(java.sql.ResultSet rs) throws java.sql.SQLException {");
+            out.println("        return new " + typeName + "(");
+            for (int i = 0; i < columns.size(); i++) {
+                out.println("                " + columns.get(i).getter().formatted(i + 1) + (i < columns.size() - 1 ? "," : ""));
+            }
+            out.println("        );");
+            out.println("    }");
+            if (rowMapper) {
+                out.println();
+                out.println("    @Override");
+                out.println("    public " + typeName + " mapRow(java.sql.ResultSet rs, int rowNum) throws java.sql.SQLException {");
+                out.println("        return read(rs);");
+                out.println("    }");
+            }
+            if (columns.stream().anyMatch(column -> column.getter().startsWith("instant("))) {
+                out.println();
+                out.println("    private static java.time.Instant instant(java.sql.ResultSet rs, int index) throws java.sql.SQLException {");
+                out.println("        final var timestamp = rs.getTimestamp(index);");
+                out.println("        return timestamp == null ? null : timestamp.toInstant();");
+                out.println("    }");
+            }
+            out.println("}");
+        } catch (IOException e) {
+            error("Could not write " + readerName + ": " + e.getMessage(), type);
+        }
+    }
+
+    /**
+     * Nested types get the names of the types around them, BalanceSnapshot.Balance is read by BalanceSnapshotBalanceReader.
+     */
+    private static String readerName(TypeElement type) {
+        var name = type.getSimpleName().toString();
+        for (var enclosing = type.getEnclosingElement(); enclosing instanceof TypeElement outer; enclosing = outer.getEnclosingElement()) {
+            name = outer.getSimpleName() + name;
+        }
+        return name + "Reader";
+    }
+
+    private void check(VariableElement field) {
+        if (!(field.getConstantValue() instanceof String sql)) {
+            error("@SelectOf goes on a String constant", field);
+            return;
+        }
+        final var type = selectOfType(field);
+        final var expected = columnsByType.get(type.getQualifiedName().toString());
+        if (expected == null) {
+            error(type.getQualifiedName() + " has no reader in this module, it needs @RowMapped", field);
+            return;
+        }
+
+        final var matcher = SELECT_LIST.matcher(sql);
+        if (!matcher.find()) {
+            error("Not a SELECT ... FROM: " + sql, field);
+            return;
+        }
+        final var selected = new ArrayList<String>();
+        for (String column : matcher.group(1).split(",")) {
+            // the alias if there is one, without a table in front
+            final var tokens = column.strip().split("\\s+");
+            final var name = tokens[tokens.length - 1].replace("`", "").toLowerCase(Locale.ROOT);
+            selected.add(name.substring(name.lastIndexOf('.') + 1));
+        }
+        if (selected.size() < expected.size() || !selected.subList(0, expected.size()).equals(expected)) {
+            error("Select list " + selected + " doesn't start with the columns " + expected + " of " + readerName(type), field);
+        }
+    }
+
+    /**
+     * The Class value of the annotation is only there as a type mirror while compiling.
+     */
+    private TypeElement selectOfType(VariableElement field) {
+        for (AnnotationMirror annotation : field.getAnnotationMirrors()) {
+            if (annotation.getAnnotationType().toString().equals(SelectOf.class.getName())) {
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : annotation.getElementValues().entrySet()) {
+                    return (TypeElement) ((DeclaredType) value.getValue().getValue()).asElement();
+                }
+            }
+        }
+        throw new IllegalStateException("No @SelectOf on " + field);
+    }
+
+    private void error(String message, Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,17 @@
+package com.mcnealysoftware.rowmapper;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Checks a SQL constant against the reader of a {@link RowMapped} type when compiling. The select list has to start
+ * with the columns of the reader, in the same order, more columns after them are fine. Compilation fails otherwise,
+ * instead of the reader getting the wrong column at run time.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.SOURCE)
+public @interface SelectOf {
+    Class<?> value();
+}
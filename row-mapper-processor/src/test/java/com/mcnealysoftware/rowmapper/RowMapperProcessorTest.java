@@ -0,0 +1,125 @@
+package com.mcnealysoftware.rowmapper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RowMapperProcessorTest {
+
+    @TempDir
+    Path directory;
+
+    private record Result(boolean success, List<String> errors) {
+    }
+
+    private static JavaFileObject source(String name, String code) {
+        return new SimpleJavaFileObject(URI.create("string:///p/" + name + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+
+    private Result compile(String name, String code) throws IOException {
+        final var compiler = ToolProvider.getSystemJavaCompiler();
+        final var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        try (final var fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, List.of(directory.toFile()));
+            fileManager.setLocation(StandardLocation.SOURCE_OUTPUT, List.of(directory.toFile()));
+            final var task = compiler.getTask(null, fileManager, diagnostics, List.of("-classpath", System.getProperty("java.class.path")), null, List.of(source(name, code)));
+            task.setProcessors(List.of(new RowMapperProcessor()));
+            final var success = task.call();
+            final var errors = diagnostics.getDiagnostics().stream()
+                    .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                    .map(diagnostic -> diagnostic.getMessage(null))
+                    .toList();
+            return new Result(success, errors);
+        }
+    }
+
+    @Test
+    void generateTest() throws IOException {
+        final var result = compile("Account", """
+                package p;
+
+                import com.mcnealysoftware.rowmapper.RowMapped;
+                import com.mcnealysoftware.rowmapper.SelectOf;
+
+                @RowMapped
+                public record Account(Long id, String name, long balanceMinor) {
+                    @SelectOf(Account.class)
+                    static final String SELECT = "SELECT a.id, a.name, balance_minor AS balance_minor, timestamp FROM account a WHERE id > ?";
+
+                    static Account read(java.sql.ResultSet rs) throws java.sql.SQLException {
+                        return AccountReader.read(rs);
+                    }
+                }
+                """);
+
+        assertEquals(List.of(), result.errors());
+        assertTrue(result.success());
+        final var reader = Files.readString(directory.resolve("p/AccountReader.java"));
+        assertTrue(reader.contains("COLUMNS = \"id, name, balance_minor\""));
+        assertTrue(reader.contains("rs.getObject(1, java.lang.Long.class)"));
+        assertTrue(reader.contains("rs.getLong(3)"));
+        assertFalse(reader.contains("getLong(\""));
+    }
+
+    @Test
+    void selectOfTest() throws IOException {
+        final var result = compile("Account", """
+                package p;
+
+                import com.mcnealysoftware.rowmapper.RowMapped;
+                import com.mcnealysoftware.rowmapper.SelectOf;
+
+                @RowMapped
+                public record Account(Long id, String name, long balanceMinor) {
+                    @SelectOf(Account.class)
+                    static final String SELECT = "SELECT id, balance_minor, name FROM account";
+                }
+                """);
+
+        assertFalse(result.success());
+        assertEquals(List.of("Select list [id, balance_minor, name] doesn't start with the columns [id, name, balance_minor] of AccountReader"), result.errors());
+    }
+
+    @Test
+    void rowMappedTestUnsupported() throws IOException {
+        final var result = compile("Account", """
+                package p;
+
+                import com.mcnealysoftware.rowmapper.RowMapped;
+
+                @RowMapped
+                public record Account(Long id, java.util.List<String> names) {
+                }
+                """);
+
+        assertFalse(result.success());
+        assertEquals(1, result.errors().size());
+        assertTrue(result.errors().getFirst().startsWith("No ResultSet getter for java.util.List<java.lang.String>"));
+    }
+
+    @Test
+    void snakeCaseTest() {
+        assertEquals("id", RowMapperProcessor.snakeCase("id"));
+        assertEquals("balance_minor", RowMapperProcessor.snakeCase("balanceMinor"));
+    }
+}
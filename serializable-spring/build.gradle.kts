@@ -1,7 +1,10 @@
 plugins {
     id("java")
     `java-library`
-    id("org.springframework.boot") version "3.5.5" apply false
+    id("org.springframework.boot") version "3.5.5"
+    // processAot on AccountServiceApplication, bootJar started with -Dspring.aot.enabled=true skips the bean
+    // definition scanning. Conditions are settled at build time, with the service profile main adds
+    id("org.springframework.boot.aot") version "3.5.5"
     id("io.spring.dependency-management") version "1.1.7"
 }
 
@@ -20,10 +23,21 @@ repositories {
 
 dependencies {
     implementation("com.mysql:mysql-connector-j:9.5.0")
+    implementation(project(":minor-units"))
+    // migrations every module runs the same, picked up from classpath:schema next to the module's own
+    runtimeOnly(project(":account-schema"))
+    // generates the index-based readers of @RowMapped types, the annotations are gone after compiling
+    compileOnly(project(":row-mapper-processor"))
+    annotationProcessor(project(":row-mapper-processor"))
     implementation("org.springframework.boot:spring-boot-starter-jdbc")
     implementation("org.springframework.boot:spring-boot-starter-data-jpa")
+    implementation("org.springframework.boot:spring-boot-starter-web")
     implementation("org.springframework.retry:spring-retry")
+    implementation("org.springframework:spring-r2dbc")
+    implementation("io.asyncer:r2dbc-mysql:1.4.1")
+    implementation("io.r2dbc:r2dbc-pool")
     testImplementation("org.springframework.boot:spring-boot-starter-test")
+    testImplementation("io.projectreactor:reactor-test")
 
     testImplementation(platform("org.junit:junit-bom:5.13.4"))
     // junit-platform-launcher required https://github.com/gradle/gradle/issues/34512
@@ -40,8 +54,34 @@ dependencies {
     testImplementation("org.springframework.boot:spring-boot-testcontainers")
 }
 
+// JDK AOT cache (JEP 483/514/515). A training run of the tests records the classes Spring, Hibernate and the driver
+// load and link, and which methods are hot, later test JVMs start from that instead of from scratch.
+val aotCache = layout.buildDirectory.file("aot/test.aot")
+
+tasks.register<Test>("aotCacheTraining") {
+    description = "Runs the tests once to record the JDK AOT cache used by later test runs."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        excludeTags("benchmark")
+    }
+    outputs.file(aotCache)
+    doFirst {
+        aotCache.get().asFile.parentFile.mkdirs()
+    }
+    jvmArgs("-XX:AOTCacheOutput=${aotCache.get().asFile}")
+}
+
 tasks.test {
-    useJUnitPlatform()
+    useJUnitPlatform {
+        excludeTags("benchmark")
+    }
+    // a cache recorded for a different classpath is ignored with a warning, not an error
+    jvmArgumentProviders.add(CommandLineArgumentProvider {
+        val file = aotCache.get().asFile
+        if (file.exists()) listOf("-XX:AOTCache=$file") else emptyList()
+    })
 }
 
 dependencyManagement {
@@ -53,3 +93,16 @@ dependencyManagement {
 tasks.compileJava.configure {
     options.compilerArgs.add("-parameters")
 }
+
+tasks.register<Test>("benchmark") {
+    description = "Runs the benchmarks, they take minutes and only print results."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("benchmark")
+    }
+    testLogging {
+        showStandardStreams = true
+    }
+}
@@ -0,0 +1,28 @@
+package com.mcnealysoftware.serializable;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
+import org.springframework.retry.annotation.EnableRetry;
+
+/**
+ * The accounts over HTTP, see {@link com.mcnealysoftware.serializable.web.AccountController}. Started with bootRun,
+ * the database comes from DATABASE_URL, DATABASE_USERNAME and DATABASE_PASSWORD. Also the context of every test.
+ * <p>
+ * Run as the service it has the service profile, application-service.properties turns on what only a running
+ * service needs, like the scheduled ledger compaction and idempotency key cleanup. Tests don't start through main
+ * and leave it off.
+ */
+// the reactive repository creates its own transaction manager, a second TransactionManager bean would make
+// every @Transactional method ambiguous
+@EnableRetry
+@SpringBootApplication(exclude = R2dbcTransactionManagerAutoConfiguration.class)
+public class AccountServiceApplication {
+    public static final String SERVICE_PROFILE = "service";
+
+    public static void main(String[] args) {
+        final var application = new SpringApplication(AccountServiceApplication.class);
+        application.setAdditionalProfiles(SERVICE_PROFILE);
+        application.run(args);
+    }
+}
@@ -0,0 +1,162 @@
+package com.mcnealysoftware.serializable;
+
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Limits how many calls run at the same time, and finds that limit by itself. Every call measures its latency and
+ * compares it to the lowest latency seen recently, when nothing had to wait. While they are close the limit grows,
+ * once latency goes up because calls queue in the database the limit shrinks by the same ratio. A call that failed
+ * because of load, like a deadlock or a lock wait timeout, cuts the limit by a fixed factor. Any other failure, a
+ * missing row or a broken constraint, only gives the slot back. Calls over the limit wait up to maxWait for a free
+ * slot and are then rejected with {@link LimitExceededException}.
+ */
+public class AdaptiveLimiter {
+
+    /**
+     * Latency may grow to this many times the lowest one before the limit shrinks.
+     */
+    private static final double TOLERANCE = 2.0;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF = 0.9;
+    /**
+     * The lowest latency is forgotten after this many calls, so the limit can follow a database that got slower.
+     */
+    private static final int MIN_LATENCY_WINDOW = 1000;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long maxWaitNanos;
+    private final Predicate<RuntimeException> overloaded;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+
+    private double limit;
+    private int inFlight;
+    private long minLatencyNanos = Long.MAX_VALUE;
+    private int samples;
+
+    /**
+     * @param name       Shows up in the rejection, one limiter per class of operation.
+     * @param maxWait    How long a call waits for a free slot before it's rejected. Zero rejects right away.
+     * @param overloaded Tells the failures that shrink the limit from the rest.
+     */
+    public AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit, Duration maxWait,
+                           Predicate<RuntimeException> overloaded) {
+        this.name = name;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.overloaded = overloaded;
+    }
+
+    public <T> T call(Supplier<T> operation) {
+        acquire();
+        final var start = System.nanoTime();
+        var outcome = Outcome.FAILED;
+        try {
+            final var result = operation.get();
+            outcome = Outcome.SUCCEEDED;
+            return result;
+        } catch (RuntimeException e) {
+            if (overloaded.test(e)) {
+                outcome = Outcome.OVERLOADED;
+            }
+            throw e;
+        } finally {
+            release(System.nanoTime() - start, outcome);
+        }
+    }
+
+    public void run(Runnable operation) {
+        call(() -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void acquire() {
+        lock.lock();
+        try {
+            var remainingNanos = maxWaitNanos;
+            while (inFlight >= (int) limit) {
+                if (remainingNanos <= 0L) {
+                    throw new LimitExceededException(name, (int) limit);
+                }
+                remainingNanos = available.awaitNanos(remainingNanos);
+            }
+            inFlight++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LimitExceededException(name, (int) limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long latencyNanos, Outcome outcome) {
+        lock.lock();
+        try {
+            // judge the limit by how full it was while this call ran, before giving the slot back
+            final var used = inFlight;
+            inFlight--;
+            if (outcome == Outcome.SUCCEEDED) {
+                if (++samples > MIN_LATENCY_WINDOW) {
+                    samples = 0;
+                    minLatencyNanos = latencyNanos;
+                }
+                minLatencyNanos = Math.min(minLatencyNanos, latencyNanos);
+                // a limit that's mostly unused says nothing about what the database can take
+                if (used * 2 >= limit) {
+                    final var gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * minLatencyNanos / Math.max(1L, latencyNanos)));
+                    final var newLimit = limit * gradient + Math.sqrt(limit);
+                    limit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+                }
+            } else if (outcome == Outcome.OVERLOADED) {
+                limit = limit * BACKOFF;
+            }
+            limit = Math.max(minLimit, Math.min(maxLimit, limit));
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private enum Outcome {
+        SUCCEEDED,
+        OVERLOADED,
+        FAILED
+    }
+
+    /**
+     * Thrown instead of running the call, nothing was sent to the database.
+     */
+    public static class LimitExceededException extends RuntimeException {
+        public LimitExceededException(String name, int limit) {
+            super("Too many concurrent " + name + " calls, limit is " + limit);
+        }
+    }
+}
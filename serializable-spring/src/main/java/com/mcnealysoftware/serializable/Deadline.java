@@ -0,0 +1,78 @@
+package com.mcnealysoftware.serializable;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A point in time by which a call has to be done. Repository calls made inside {@link #call} get whatever time is
+ * left as their transaction timeout, which JDBC statements get as their query timeout, as the time to wait for a
+ * pooled connection, and as innodb_lock_wait_timeout. Retries stop once it has passed.
+ * See {@link DeadlineConfiguration}.
+ */
+public final class Deadline {
+
+    private static final ScopedValue<Deadline> CURRENT = ScopedValue.newInstance();
+
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    /**
+     * Runs the operation with a deadline timeout from now. Inside another deadline the earlier of the two applies.
+     */
+    public static <T> T call(Duration timeout, Supplier<T> operation) {
+        final var deadline = new Deadline(System.nanoTime() + timeout.toNanos());
+        final var effective = current()
+                .filter(outer -> outer.expiresAtNanos - deadline.expiresAtNanos < 0)
+                .orElse(deadline);
+        return ScopedValue.where(CURRENT, effective).call(operation::get);
+    }
+
+    public static void run(Duration timeout, Runnable operation) {
+        call(timeout, () -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    public static Optional<Deadline> current() {
+        return CURRENT.isBound() ? Optional.of(CURRENT.get()) : Optional.empty();
+    }
+
+    public long remainingNanos() {
+        return expiresAtNanos - System.nanoTime();
+    }
+
+    public boolean isExpired() {
+        return remainingNanos() <= 0L;
+    }
+
+    public void check() {
+        if (isExpired()) {
+            throw new DeadlineExceededException();
+        }
+    }
+
+    /**
+     * Time left in whole seconds, rounded up. At least 1, for JDBC and MySQL 0 means wait forever.
+     */
+    public int remainingSeconds() {
+        check();
+        return (int) Math.max(1L, TimeUnit.NANOSECONDS.toSeconds(remainingNanos() + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    public long remainingMillis() {
+        check();
+        return Math.max(1L, TimeUnit.NANOSECONDS.toMillis(remainingNanos()));
+    }
+
+    public static class DeadlineExceededException extends RuntimeException {
+        public DeadlineExceededException() {
+            super("Deadline exceeded");
+        }
+    }
+}
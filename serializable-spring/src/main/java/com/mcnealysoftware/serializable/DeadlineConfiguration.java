@@ -0,0 +1,49 @@
+package com.mcnealysoftware.serializable;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+
+/**
+ * Wires {@link Deadline} into the transaction manager, the connection pool and the retries.
+ */
+@Configuration
+public class DeadlineConfiguration {
+
+    @Bean
+    public JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+        return new DeadlineTransactionManager(entityManagerFactory);
+    }
+
+    @Bean
+    public static BeanPostProcessor deadlineDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof HikariDataSource dataSource ? new DeadlineDataSource(dataSource) : bean;
+            }
+        };
+    }
+
+    /**
+     * Picked up by every @Retryable. Without it a transfer that keeps deadlocking would be retried all 100 times,
+     * long after the caller has given up.
+     */
+    @Bean
+    public RetryListener deadlineRetryListener() {
+        return new RetryListener() {
+            @Override
+            public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+                if (Deadline.current().map(Deadline::isExpired).orElse(false)) {
+                    context.setExhaustedOnly();
+                }
+            }
+        };
+    }
+}
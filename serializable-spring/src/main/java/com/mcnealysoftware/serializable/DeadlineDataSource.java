@@ -0,0 +1,71 @@
+package com.mcnealysoftware.serializable;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.pool.HikariPool;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Inside a {@link Deadline}, waits for a pooled connection only as long as there is time left, and sets
+ * innodb_lock_wait_timeout on the connection to the time left, so a blocked row lock gives up with the caller instead
+ * of after the server's 50 seconds. The session value goes back to the server default when the connection is
+ * returned to the pool.
+ */
+public class DeadlineDataSource extends DelegatingDataSource {
+
+    public DeadlineDataSource(HikariDataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        final var deadline = Deadline.current();
+        if (deadline.isEmpty()) {
+            return super.getConnection();
+        }
+
+        final Connection connection;
+        // the pool is created lazily by the first getConnection, until then there is no per call timeout
+        if (((HikariDataSource) obtainTargetDataSource()).getHikariPoolMXBean() instanceof HikariPool pool) {
+            connection = pool.getConnection(deadline.get().remainingMillis());
+        } else {
+            connection = super.getConnection();
+        }
+        try (var statement = connection.createStatement()) {
+            statement.execute("SET SESSION innodb_lock_wait_timeout = " + deadline.get().remainingSeconds());
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+        return resettingOnClose(connection);
+    }
+
+    private static Connection resettingOnClose(Connection target) {
+        return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(), new Class<?>[]{ConnectionProxy.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "getTargetConnection" -> target;
+                    case "close" -> {
+                        try (var statement = target.createStatement()) {
+                            statement.execute("SET SESSION innodb_lock_wait_timeout = DEFAULT");
+                        } finally {
+                            target.close();
+                        }
+                        yield null;
+                    }
+                    default -> {
+                        try {
+                            yield method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    }
+                });
+    }
+}
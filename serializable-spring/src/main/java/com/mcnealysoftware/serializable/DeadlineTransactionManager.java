@@ -0,0 +1,28 @@
+package com.mcnealysoftware.serializable;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+/**
+ * Gives a transaction started inside a {@link Deadline} the time left as its timeout, or the timeout of the
+ * annotation when that is shorter. Spring passes it on as the query timeout of every JDBC statement and as the
+ * Hibernate query timeout. A transaction is not started at all once the deadline has passed.
+ */
+public class DeadlineTransactionManager extends JpaTransactionManager {
+
+    public DeadlineTransactionManager(EntityManagerFactory entityManagerFactory) {
+        super(entityManagerFactory);
+    }
+
+    @Override
+    protected int determineTimeout(TransactionDefinition definition) {
+        final var timeout = super.determineTimeout(definition);
+        final var deadline = Deadline.current();
+        if (deadline.isEmpty()) {
+            return timeout;
+        }
+        final var remaining = deadline.get().remainingSeconds();
+        return timeout == TransactionDefinition.TIMEOUT_DEFAULT ? remaining : Math.min(timeout, remaining);
+    }
+}
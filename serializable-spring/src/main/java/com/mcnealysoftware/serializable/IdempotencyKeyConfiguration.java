@@ -0,0 +1,37 @@
+package com.mcnealysoftware.serializable;
+
+import com.mcnealysoftware.serializable.transfer.IdempotencyKeys;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+
+/**
+ * Deletes idempotency keys older than account.transfer.idempotency.retention, a day by default, every
+ * account.transfer.idempotency.cleanup-interval, an hour by default. A client retrying after the retention gets its
+ * transfer applied again. Only with account.transfer.idempotency.cleanup-enabled=true, which the service profile sets.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "account.transfer.idempotency.cleanup-enabled", havingValue = "true", matchIfMissing = false)
+public class IdempotencyKeyConfiguration {
+
+    private final IdempotencyKeys idempotencyKeys;
+    private final Duration retention;
+
+    @Autowired
+    public IdempotencyKeyConfiguration(IdempotencyKeys idempotencyKeys,
+                                       @Value("${account.transfer.idempotency.retention:P1D}") Duration retention) {
+        this.idempotencyKeys = idempotencyKeys;
+        this.retention = retention;
+    }
+
+    @Scheduled(fixedDelayString = "${account.transfer.idempotency.cleanup-interval:PT1H}", initialDelayString = "${account.transfer.idempotency.cleanup-interval:PT1H}")
+    public void deleteExpiredKeys() {
+        idempotencyKeys.deleteOlderThan(retention);
+    }
+}
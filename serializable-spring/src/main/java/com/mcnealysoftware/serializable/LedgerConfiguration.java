@@ -0,0 +1,32 @@
+package com.mcnealysoftware.serializable;
+
+import com.mcnealysoftware.serializable.account.AccountRepositoryLedger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Runs {@link AccountRepositoryLedger#compact()} every account.ledger.compaction-interval, a minute by default.
+ * Only with account.ledger.compaction-enabled=true, which the service profile sets, so test contexts never compact
+ * behind a test's back. Without it compact() has to be called by whoever runs the ledger.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "account.ledger.compaction-enabled", havingValue = "true", matchIfMissing = false)
+public class LedgerConfiguration {
+
+    private final AccountRepositoryLedger ledger;
+
+    @Autowired
+    public LedgerConfiguration(AccountRepositoryLedger ledger) {
+        this.ledger = ledger;
+    }
+
+    // the first run is one interval after startup so the migrations are done
+    @Scheduled(fixedDelayString = "${account.ledger.compaction-interval:PT1M}", initialDelayString = "${account.ledger.compaction-interval:PT1M}")
+    public void compact() {
+        ledger.compact();
+    }
+}
@@ -1,5 +1,7 @@
 package com.mcnealysoftware.serializable.account;
 
+import com.mcnealysoftware.minorunits.MinorUnits;
+import com.mcnealysoftware.rowmapper.RowMapped;
 import jakarta.persistence.*;
 
 import java.math.BigDecimal;
@@ -10,12 +12,16 @@ public class Account {
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
     private String name;
-    private BigDecimal balance;
+    private long balanceMinor;
 
-    public Account(long id, String name, BigDecimal balance) {
+    /**
+     * Also what the generated AccountReader reads a row with.
+     */
+    @RowMapped
+    public Account(long id, String name, long balanceMinor) {
         this.id = id;
         this.name = name;
-        this.balance = balance;
+        this.balanceMinor = balanceMinor;
     }
 
     public Account() {
@@ -38,10 +44,18 @@ public class Account {
     }
 
     public BigDecimal getBalance() {
-        return balance;
+        return MinorUnits.fromMinor(balanceMinor);
     }
 
     public void setBalance(BigDecimal balance) {
-        this.balance = balance;
+        this.balanceMinor = MinorUnits.toMinor(balance);
+    }
+
+    public long getBalanceMinor() {
+        return balanceMinor;
+    }
+
+    public void setBalanceMinor(long balanceMinor) {
+        this.balanceMinor = balanceMinor;
     }
 }
@@ -2,6 +2,8 @@ package com.mcnealysoftware.serializable.account;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.LockModeType;
+import jakarta.persistence.LockTimeoutException;
+import jakarta.persistence.PessimisticLockException;
 import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.retry.annotation.Backoff;
@@ -9,8 +11,13 @@ import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.math.BigDecimal;
+import java.util.Map;
+
+import static com.mcnealysoftware.minorunits.MinorUnits.fromMinor;
+import static com.mcnealysoftware.minorunits.MinorUnits.toMinor;
 
 @Repository
 public class AccountRepositoryEntityManager {
@@ -38,13 +45,23 @@ public class AccountRepositoryEntityManager {
         return entityManager.find(Account.class, accountId).getBalance();
     }
 
+    @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
+    public long getBalanceMinor(long accountId) {
+        return entityManager.find(Account.class, accountId).getBalanceMinor();
+    }
+
     @Transactional(readOnly = false, isolation = Isolation.READ_COMMITTED)
     public void moveAmount(long fromAccountId, long toAccountId, BigDecimal amount) {
-        final var fromQuery = entityManager.createQuery("UPDATE Account SET balance = balance - ?1 WHERE id = ?2");
+        moveAmountMinor(fromAccountId, toAccountId, toMinor(amount));
+    }
+
+    @Transactional(readOnly = false, isolation = Isolation.READ_COMMITTED)
+    public void moveAmountMinor(long fromAccountId, long toAccountId, long amount) {
+        final var fromQuery = entityManager.createQuery("UPDATE Account SET balanceMinor = balanceMinor - ?1 WHERE id = ?2");
         fromQuery.setParameter(1, amount);
         fromQuery.setParameter(2, fromAccountId);
         fromQuery.executeUpdate();
-        final var toQuery = entityManager.createQuery("UPDATE Account SET balance = balance + ?1 WHERE id = ?2");
+        final var toQuery = entityManager.createQuery("UPDATE Account SET balanceMinor = balanceMinor + ?1 WHERE id = ?2");
         toQuery.setParameter(1, amount);
         toQuery.setParameter(2, toAccountId);
         toQuery.executeUpdate();
@@ -56,10 +73,11 @@ public class AccountRepositoryEntityManager {
     @Retryable(maxAttempts = 100, backoff = @Backoff(0))
     @Transactional(readOnly = false, isolation = Isolation.SERIALIZABLE)
     public void moveAmountSerializableDeadlocks(long fromAccountId, long toAccountId, BigDecimal amount) {
+        final var minorAmount = toMinor(amount);
         final var fromAccount = entityManager.find(Account.class, fromAccountId);
-        fromAccount.setBalance(fromAccount.getBalance().subtract(amount));
+        fromAccount.setBalanceMinor(fromAccount.getBalanceMinor() - minorAmount);
         final var toAccount = entityManager.find(Account.class, toAccountId);
-        toAccount.setBalance(toAccount.getBalance().add(amount));
+        toAccount.setBalanceMinor(toAccount.getBalanceMinor() + minorAmount);
     }
 
     /**
@@ -67,26 +85,57 @@ public class AccountRepositoryEntityManager {
      */
     @Transactional(readOnly = false, isolation = Isolation.SERIALIZABLE)
     public void moveAmountSerializable(long fromAccountId, long toAccountId, BigDecimal amount) {
+        moveAmountSerializableMinor(fromAccountId, toAccountId, toMinor(amount));
+    }
+
+    @Transactional(readOnly = false, isolation = Isolation.SERIALIZABLE)
+    public void moveAmountSerializableMinor(long fromAccountId, long toAccountId, long amount) {
         if (fromAccountId <= toAccountId) {
             final var fromAccount = entityManager.find(Account.class, fromAccountId, LockModeType.PESSIMISTIC_WRITE);
-            fromAccount.setBalance(fromAccount.getBalance().subtract(amount));
+            fromAccount.setBalanceMinor(fromAccount.getBalanceMinor() - amount);
             final var toAccount = entityManager.find(Account.class, toAccountId, LockModeType.PESSIMISTIC_WRITE);
-            toAccount.setBalance(toAccount.getBalance().add(amount));
+            toAccount.setBalanceMinor(toAccount.getBalanceMinor() + amount);
         } else {
-            moveAmountSerializable(toAccountId, fromAccountId, amount.negate());
+            moveAmountSerializableMinor(toAccountId, fromAccountId, -amount);
+        }
+    }
+
+    /**
+     * A lock timeout of 0 makes Hibernate add NOWAIT to the FOR UPDATE, a locked row fails the transfer at once.
+     */
+    @Transactional(readOnly = false, isolation = Isolation.SERIALIZABLE)
+    public TransferResult moveAmountSerializableNoWait(long fromAccountId, long toAccountId, BigDecimal amount) {
+        return moveAmountSerializableNoWaitMinor(fromAccountId, toAccountId, toMinor(amount));
+    }
+
+    @Transactional(readOnly = false, isolation = Isolation.SERIALIZABLE)
+    public TransferResult moveAmountSerializableNoWaitMinor(long fromAccountId, long toAccountId, long amount) {
+        final var noWait = Map.<String, Object>of("jakarta.persistence.lock.timeout", 0);
+        final var firstAccountId = Math.min(fromAccountId, toAccountId);
+        final var secondAccountId = Math.max(fromAccountId, toAccountId);
+        final var firstAmount = firstAccountId == fromAccountId ? -amount : amount;
+        try {
+            final var firstAccount = entityManager.find(Account.class, firstAccountId, LockModeType.PESSIMISTIC_WRITE, noWait);
+            final var secondAccount = entityManager.find(Account.class, secondAccountId, LockModeType.PESSIMISTIC_WRITE, noWait);
+            firstAccount.setBalanceMinor(firstAccount.getBalanceMinor() + firstAmount);
+            secondAccount.setBalanceMinor(secondAccount.getBalanceMinor() - firstAmount);
+            return TransferResult.APPLIED;
+        } catch (LockTimeoutException | PessimisticLockException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return TransferResult.CONTENDED;
         }
     }
 
     @Transactional(readOnly = true, isolation = Isolation.READ_UNCOMMITTED)
     public BigDecimal getTotalBalances() {
-        final var query = entityManager.createQuery("SELECT SUM(balance) FROM Account", BigDecimal.class);
-        return query.getSingleResult();
+        final var query = entityManager.createQuery("SELECT COALESCE(SUM(balanceMinor), 0L) FROM Account", Long.class);
+        return fromMinor(query.getSingleResult());
     }
 
     @Retryable(maxAttempts = 100, backoff = @Backoff(0))
     @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
     public BigDecimal getTotalBalancesCommitted() {
-        final var query = entityManager.createQuery("SELECT SUM(balance) FROM Account", BigDecimal.class);
-        return query.getSingleResult();
+        final var query = entityManager.createQuery("SELECT COALESCE(SUM(balanceMinor), 0L) FROM Account", Long.class);
+        return fromMinor(query.getSingleResult());
     }
 }
\ No newline at end of file
@@ -1,14 +1,19 @@
 package com.mcnealysoftware.serializable.account;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.math.BigDecimal;
 
+import static com.mcnealysoftware.minorunits.MinorUnits.fromMinor;
+import static com.mcnealysoftware.minorunits.MinorUnits.toMinor;
+
 @Service
 public class AccountRepositoryJPAService {
 
@@ -29,9 +34,19 @@ public class AccountRepositoryJPAService {
         return accountRepository.findById(accountId).get().getBalance();
     }
 
+    @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
+    public long getBalanceMinor(long accountId) {
+        return accountRepository.findById(accountId).get().getBalanceMinor();
+    }
+
     @Transactional(readOnly = false, isolation = Isolation.READ_COMMITTED)
     public void moveAmount(long fromAccountId, long toAccountId, BigDecimal amount) {
-        accountRepository.moveAmount(fromAccountId, amount.negate());
+        moveAmountMinor(fromAccountId, toAccountId, toMinor(amount));
+    }
+
+    @Transactional(readOnly = false, isolation = Isolation.READ_COMMITTED)
+    public void moveAmountMinor(long fromAccountId, long toAccountId, long amount) {
+        accountRepository.moveAmount(fromAccountId, -amount);
         accountRepository.moveAmount(toAccountId, amount);
     }
 
@@ -41,10 +56,11 @@ public class AccountRepositoryJPAService {
     @Retryable(maxAttempts = 100, backoff = @Backoff(0))
     @Transactional(readOnly = false, isolation = Isolation.SERIALIZABLE)
     public void moveAmountSerializableRetrying(long fromAccountId, long toAccountId, BigDecimal amount) {
+        final var minorAmount = toMinor(amount);
         final var fromAccount = accountRepository.findById(fromAccountId).get();
-        fromAccount.setBalance(fromAccount.getBalance().subtract(amount));
+        fromAccount.setBalanceMinor(fromAccount.getBalanceMinor() - minorAmount);
         final var toAccount = accountRepository.findById(toAccountId).get();
-        toAccount.setBalance(toAccount.getBalance().add(amount));
+        toAccount.setBalanceMinor(toAccount.getBalanceMinor() + minorAmount);
     }
 
     /**
@@ -54,24 +70,54 @@ public class AccountRepositoryJPAService {
      */
     @Transactional(readOnly = false, isolation = Isolation.SERIALIZABLE)
     public void moveAmountSerializableLocking(long fromAccountId, long toAccountId, BigDecimal amount) {
+        moveAmountSerializableLockingMinor(fromAccountId, toAccountId, toMinor(amount));
+    }
+
+    @Transactional(readOnly = false, isolation = Isolation.SERIALIZABLE)
+    public void moveAmountSerializableLockingMinor(long fromAccountId, long toAccountId, long amount) {
         if (fromAccountId <= toAccountId) {
             final var fromAccount = accountRepository.findByIdWithPessimisticWriteLock(fromAccountId).get();
-            fromAccount.setBalance(fromAccount.getBalance().subtract(amount));
+            fromAccount.setBalanceMinor(fromAccount.getBalanceMinor() - amount);
             final var toAccount = accountRepository.findByIdWithPessimisticWriteLock(toAccountId).get();
-            toAccount.setBalance(toAccount.getBalance().add(amount));
+            toAccount.setBalanceMinor(toAccount.getBalanceMinor() + amount);
         } else {
-            moveAmountSerializableLocking(toAccountId, fromAccountId, amount.negate());
+            moveAmountSerializableLockingMinor(toAccountId, fromAccountId, -amount);
+        }
+    }
+
+    /**
+     * Like the locking version, but a row that's already locked fails the transfer instead of waiting for it.
+     */
+    @Transactional(readOnly = false, isolation = Isolation.SERIALIZABLE)
+    public TransferResult moveAmountSerializableNoWait(long fromAccountId, long toAccountId, BigDecimal amount) {
+        return moveAmountSerializableNoWaitMinor(fromAccountId, toAccountId, toMinor(amount));
+    }
+
+    @Transactional(readOnly = false, isolation = Isolation.SERIALIZABLE)
+    public TransferResult moveAmountSerializableNoWaitMinor(long fromAccountId, long toAccountId, long amount) {
+        final var firstAccountId = Math.min(fromAccountId, toAccountId);
+        final var secondAccountId = Math.max(fromAccountId, toAccountId);
+        final var firstAmount = firstAccountId == fromAccountId ? -amount : amount;
+        try {
+            final var firstAccount = accountRepository.findByIdWithPessimisticWriteLockNoWait(firstAccountId).get();
+            final var secondAccount = accountRepository.findByIdWithPessimisticWriteLockNoWait(secondAccountId).get();
+            firstAccount.setBalanceMinor(firstAccount.getBalanceMinor() + firstAmount);
+            secondAccount.setBalanceMinor(secondAccount.getBalanceMinor() - firstAmount);
+            return TransferResult.APPLIED;
+        } catch (PessimisticLockingFailureException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return TransferResult.CONTENDED;
         }
     }
 
     @Transactional(readOnly = true, isolation = Isolation.READ_UNCOMMITTED)
     public BigDecimal getTotalBalances() {
-        return accountRepository.getTotalBalances();
+        return fromMinor(accountRepository.getTotalBalances());
     }
 
     @Retryable(maxAttempts = 100, backoff = @Backoff(0))
     @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
     public BigDecimal getTotalBalancesCommitted() {
-        return accountRepository.getTotalBalances();
+        return fromMinor(accountRepository.getTotalBalances());
     }
 }
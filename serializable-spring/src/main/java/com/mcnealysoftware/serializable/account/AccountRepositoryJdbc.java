@@ -1,20 +1,33 @@
 package com.mcnealysoftware.serializable.account;
 
+import com.mcnealysoftware.rowmapper.SelectOf;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import javax.sql.DataSource;
 import java.math.BigDecimal;
 import java.sql.PreparedStatement;
+import java.util.List;
+
+import static com.mcnealysoftware.minorunits.MinorUnits.fromMinor;
+import static com.mcnealysoftware.minorunits.MinorUnits.toMinor;
 
 @Repository
 public class AccountRepositoryJdbc {
 
+    // checked against the generated AccountReader when compiling
+    @SelectOf(Account.class)
+    private static final String SELECT_PAGE = "SELECT id, name, balance_minor FROM account ORDER BY id LIMIT ? OFFSET ?";
+
+    private static final AccountReader ACCOUNT_READER = new AccountReader();
+
     private final JdbcTemplate jdbcTemplate;
 
     @Autowired
@@ -28,9 +41,9 @@ public class AccountRepositoryJdbc {
         jdbcTemplate.update(
                 con -> {
                     var ps = con.prepareStatement(
-                            "INSERT INTO account (name, balance) VALUES (?, ?)", PreparedStatement.RETURN_GENERATED_KEYS);
+                            "INSERT INTO account (name, balance_minor) VALUES (?, ?)", PreparedStatement.RETURN_GENERATED_KEYS);
                     ps.setString(1, name);
-                    ps.setBigDecimal(2, balance);
+                    ps.setLong(2, toMinor(balance));
                     return ps;
                 }, keyHolder);
         return keyHolder.getKey().longValue();
@@ -38,7 +51,12 @@ public class AccountRepositoryJdbc {
 
     @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
     public BigDecimal getBalance(long accountId) {
-        return jdbcTemplate.queryForObject("SELECT balance FROM account WHERE id = ?", BigDecimal.class, accountId);
+        return fromMinor(getBalanceMinor(accountId));
+    }
+
+    @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
+    public long getBalanceMinor(long accountId) {
+        return jdbcTemplate.queryForObject("SELECT balance_minor FROM account WHERE id = ?", Long.class, accountId);
     }
 
     /**
@@ -47,11 +65,12 @@ public class AccountRepositoryJdbc {
      */
     @Transactional(readOnly = false, isolation = Isolation.SERIALIZABLE)
     public void moveAmountSerializableDeadlocks(long fromAccountId, long toAccountId, BigDecimal amount) {
-        final var fromBalance = jdbcTemplate.queryForObject("SELECT balance FROM account WHERE id = ?", BigDecimal.class, fromAccountId);
-        jdbcTemplate.update("UPDATE account SET balance = ? WHERE id = ?", fromBalance.add(amount.negate()), fromAccountId);
+        final var minorAmount = toMinor(amount);
+        final long fromBalance = jdbcTemplate.queryForObject("SELECT balance_minor FROM account WHERE id = ?", Long.class, fromAccountId);
+        jdbcTemplate.update("UPDATE account SET balance_minor = ? WHERE id = ?", fromBalance - minorAmount, fromAccountId);
 
-        final var toBalance = jdbcTemplate.queryForObject("SELECT balance FROM account WHERE id = ?", BigDecimal.class, toAccountId);
-        jdbcTemplate.update("UPDATE account SET balance = ? WHERE id = ?", toBalance.add(amount), toAccountId);
+        final long toBalance = jdbcTemplate.queryForObject("SELECT balance_minor FROM account WHERE id = ?", Long.class, toAccountId);
+        jdbcTemplate.update("UPDATE account SET balance_minor = ? WHERE id = ?", toBalance + minorAmount, toAccountId);
     }
 
     /**
@@ -61,25 +80,66 @@ public class AccountRepositoryJdbc {
      */
     @Transactional(readOnly = false, isolation = Isolation.SERIALIZABLE)
     public void moveAmountSerializable(long fromAccountId, long toAccountId, BigDecimal amount) {
+        moveAmountSerializableMinor(fromAccountId, toAccountId, toMinor(amount));
+    }
+
+    @Transactional(readOnly = false, isolation = Isolation.SERIALIZABLE)
+    public void moveAmountSerializableMinor(long fromAccountId, long toAccountId, long amount) {
         // requires a deterministic order of locking rows, here use the lower account id
         if (fromAccountId <= toAccountId) {
-            final var fromBalance = jdbcTemplate.queryForObject("SELECT balance FROM account WHERE id = ? FOR UPDATE", BigDecimal.class, fromAccountId);
-            jdbcTemplate.update("UPDATE account SET balance = ? WHERE id = ?", fromBalance.add(amount.negate()), fromAccountId);
+            final long fromBalance = jdbcTemplate.queryForObject("SELECT balance_minor FROM account WHERE id = ? FOR UPDATE", Long.class, fromAccountId);
+            jdbcTemplate.update("UPDATE account SET balance_minor = ? WHERE id = ?", fromBalance - amount, fromAccountId);
 
-            final var toBalance = jdbcTemplate.queryForObject("SELECT balance FROM account WHERE id = ? FOR UPDATE", BigDecimal.class, toAccountId);
-            jdbcTemplate.update("UPDATE account SET balance = ? WHERE id = ?", toBalance.add(amount), toAccountId);
+            final long toBalance = jdbcTemplate.queryForObject("SELECT balance_minor FROM account WHERE id = ? FOR UPDATE", Long.class, toAccountId);
+            jdbcTemplate.update("UPDATE account SET balance_minor = ? WHERE id = ?", toBalance + amount, toAccountId);
         } else {
-            moveAmountSerializable(toAccountId, fromAccountId, amount.negate());
+            moveAmountSerializableMinor(toAccountId, fromAccountId, -amount);
+        }
+    }
+
+    /**
+     * Same as {@link #moveAmountSerializable}, but with NOWAIT. If either row is locked the transfer is rolled back at
+     * once, instead of holding a connection until innodb_lock_wait_timeout, and the caller can requeue it.
+     */
+    @Transactional(readOnly = false, isolation = Isolation.SERIALIZABLE)
+    public TransferResult moveAmountSerializableNoWait(long fromAccountId, long toAccountId, BigDecimal amount) {
+        return moveAmountSerializableNoWaitMinor(fromAccountId, toAccountId, toMinor(amount));
+    }
+
+    @Transactional(readOnly = false, isolation = Isolation.SERIALIZABLE)
+    public TransferResult moveAmountSerializableNoWaitMinor(long fromAccountId, long toAccountId, long amount) {
+        // still a deterministic order, it keeps the chance of bouncing off each other low
+        final var firstAccountId = Math.min(fromAccountId, toAccountId);
+        final var secondAccountId = Math.max(fromAccountId, toAccountId);
+        final var firstAmount = firstAccountId == fromAccountId ? -amount : amount;
+        try {
+            final long firstBalance = jdbcTemplate.queryForObject("SELECT balance_minor FROM account WHERE id = ? FOR UPDATE NOWAIT", Long.class, firstAccountId);
+            final long secondBalance = jdbcTemplate.queryForObject("SELECT balance_minor FROM account WHERE id = ? FOR UPDATE NOWAIT", Long.class, secondAccountId);
+            jdbcTemplate.update("UPDATE account SET balance_minor = ? WHERE id = ?", firstBalance + firstAmount, firstAccountId);
+            jdbcTemplate.update("UPDATE account SET balance_minor = ? WHERE id = ?", secondBalance - firstAmount, secondAccountId);
+            return TransferResult.APPLIED;
+        } catch (PessimisticLockingFailureException e) {
+            // MySQL error 3572, the first lock may already be held, give it back
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return TransferResult.CONTENDED;
         }
     }
 
     @Transactional(readOnly = true, isolation = Isolation.READ_UNCOMMITTED)
     public BigDecimal getTotalBalances() {
-        return jdbcTemplate.queryForObject("SELECT SUM(balance) FROM account", BigDecimal.class);
+        return fromMinor(jdbcTemplate.queryForObject("SELECT COALESCE(SUM(balance_minor), 0) FROM account", Long.class));
     }
 
     @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
     public BigDecimal getTotalBalancesCommitted() {
-        return jdbcTemplate.queryForObject("SELECT SUM(balance) FROM account", BigDecimal.class);
+        return fromMinor(jdbcTemplate.queryForObject("SELECT COALESCE(SUM(balance_minor), 0) FROM account", Long.class));
+    }
+
+    @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
+    public List<Account> getAccounts(long page, long pageSize) {
+        return jdbcTemplate.query(SELECT_PAGE,
+                ACCOUNT_READER,
+                pageSize,
+                page * pageSize);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,113 @@
+package com.mcnealysoftware.serializable.account;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+
+import static com.mcnealysoftware.minorunits.MinorUnits.fromMinor;
+import static com.mcnealysoftware.minorunits.MinorUnits.toMinor;
+
+/**
+ * Ledger version of {@link AccountRepositoryJdbc}. A transfer never updates the account rows, it only appends a
+ * debit and a credit to the transfer table, so concurrent transfers never wait on each other's row locks.
+ * The balance column of the account is a snapshot, {@link #compact()} folds the transfers appended since the last
+ * snapshot into it.
+ */
+@Repository
+public class AccountRepositoryLedger {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public AccountRepositoryLedger(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Transactional(readOnly = false, isolation = Isolation.READ_UNCOMMITTED)
+    public long createAccount(String name, BigDecimal balance) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(
+                con -> {
+                    var ps = con.prepareStatement(
+                            "INSERT INTO account (name, balance_minor) VALUES (?, ?)", PreparedStatement.RETURN_GENERATED_KEYS);
+                    ps.setString(1, name);
+                    ps.setLong(2, toMinor(balance));
+                    return ps;
+                }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+
+    /**
+     * Snapshot balance plus everything appended after it. Both reads need to come from the same snapshot of the
+     * database, or a compaction committing in between would count those transfers twice.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public BigDecimal getBalance(long accountId) {
+        return fromMinor(getBalanceMinor(accountId));
+    }
+
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public long getBalanceMinor(long accountId) {
+        final long snapshot = jdbcTemplate.queryForObject("SELECT balance_minor FROM account WHERE id = ?", Long.class, accountId);
+        // answered from the transfer_account_snapshot index alone
+        final long delta = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(amount_minor), 0) FROM transfer WHERE account_id = ? AND snapshot_id IS NULL", Long.class, accountId);
+        return snapshot + delta;
+    }
+
+    /**
+     * One insert with both legs of the transfer. Takes no lock on either account.
+     */
+    @Transactional(readOnly = false, isolation = Isolation.READ_COMMITTED)
+    public void moveAmount(long fromAccountId, long toAccountId, BigDecimal amount) {
+        moveAmountMinor(fromAccountId, toAccountId, toMinor(amount));
+    }
+
+    @Transactional(readOnly = false, isolation = Isolation.READ_COMMITTED)
+    public void moveAmountMinor(long fromAccountId, long toAccountId, long amount) {
+        jdbcTemplate.update("INSERT INTO transfer (account_id, counterparty_id, amount_minor) VALUES (?, ?, ?), (?, ?, ?)",
+                fromAccountId, toAccountId, -amount,
+                toAccountId, fromAccountId, amount);
+    }
+
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public BigDecimal getTotalBalances() {
+        final long snapshot = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(balance_minor), 0) FROM account", Long.class);
+        final long delta = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(amount_minor), 0) FROM transfer WHERE snapshot_id IS NULL", Long.class);
+        return fromMinor(snapshot + delta);
+    }
+
+    /**
+     * Folds every transfer that is not part of a snapshot yet into the account balances. Transfers committed while
+     * this runs are not marked and get picked up by the next run, the snapshot only ever adds the rows it marked.
+     * READ_COMMITTED so no gap locks are taken that would block new transfers.
+     *
+     * Scheduled by the LedgerConfiguration.
+     *
+     * @return Snapshot ID.
+     */
+    @Transactional(readOnly = false, isolation = Isolation.READ_COMMITTED)
+    public long compact() {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(
+                con -> con.prepareStatement("INSERT INTO ledger_snapshot () VALUES ()", PreparedStatement.RETURN_GENERATED_KEYS),
+                keyHolder);
+        final var snapshotId = keyHolder.getKey().longValue();
+
+        jdbcTemplate.update("UPDATE transfer SET snapshot_id = ? WHERE snapshot_id IS NULL", snapshotId);
+        jdbcTemplate.update("""
+                UPDATE account
+                JOIN (SELECT account_id, SUM(amount_minor) AS delta FROM transfer WHERE snapshot_id = ? GROUP BY account_id) AS d
+                    ON account.id = d.account_id
+                SET account.balance_minor = account.balance_minor + d.delta
+                """, snapshotId);
+        return snapshotId;
+    }
+}
@@ -0,0 +1,104 @@
+package com.mcnealysoftware.serializable.account;
+
+import com.mcnealysoftware.serializable.AdaptiveLimiter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Every method of {@link AccountRepositoryJdbc} behind an {@link AdaptiveLimiter} per class of operation, so reads
+ * keep flowing while contended writes are held back. Not transactional on purpose, a call waiting for a slot holds no
+ * connection.
+ */
+@Service
+public class AccountRepositoryLimited {
+
+    private final AccountRepositoryJdbc accountRepository;
+    private final AdaptiveLimiter readLimiter;
+    private final AdaptiveLimiter writeLimiter;
+
+    @Autowired
+    public AccountRepositoryLimited(AccountRepositoryJdbc accountRepository,
+                                    @Value("${account.limiter.max-limit:100}") int maxLimit,
+                                    @Value("${account.limiter.max-wait:PT1S}") Duration maxWait) {
+        this.accountRepository = accountRepository;
+        this.readLimiter = new AdaptiveLimiter("read", 10, 1, maxLimit, maxWait, AccountRepositoryLimited::isOverloaded);
+        this.writeLimiter = new AdaptiveLimiter("write", 10, 1, maxLimit, maxWait, AccountRepositoryLimited::isOverloaded);
+    }
+
+    /**
+     * Timeouts, lock waits, deadlocks and lost connections, failures that go away with less load. A missing account or
+     * a broken constraint says nothing about the database and leaves the limit alone.
+     */
+    static boolean isOverloaded(Throwable e) {
+        for (var cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof SQLTransientException
+                    || cause instanceof SQLRecoverableException
+                    || cause instanceof SQLNonTransientConnectionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long createAccount(String name, BigDecimal balance) {
+        return writeLimiter.call(() -> accountRepository.createAccount(name, balance));
+    }
+
+    public BigDecimal getBalance(long accountId) {
+        return readLimiter.call(() -> accountRepository.getBalance(accountId));
+    }
+
+    public long getBalanceMinor(long accountId) {
+        return readLimiter.call(() -> accountRepository.getBalanceMinor(accountId));
+    }
+
+    public void moveAmountSerializableDeadlocks(long fromAccountId, long toAccountId, BigDecimal amount) {
+        writeLimiter.run(() -> accountRepository.moveAmountSerializableDeadlocks(fromAccountId, toAccountId, amount));
+    }
+
+    public void moveAmountSerializable(long fromAccountId, long toAccountId, BigDecimal amount) {
+        writeLimiter.run(() -> accountRepository.moveAmountSerializable(fromAccountId, toAccountId, amount));
+    }
+
+    public void moveAmountSerializableMinor(long fromAccountId, long toAccountId, long amount) {
+        writeLimiter.run(() -> accountRepository.moveAmountSerializableMinor(fromAccountId, toAccountId, amount));
+    }
+
+    public TransferResult moveAmountSerializableNoWait(long fromAccountId, long toAccountId, BigDecimal amount) {
+        return writeLimiter.call(() -> accountRepository.moveAmountSerializableNoWait(fromAccountId, toAccountId, amount));
+    }
+
+    public TransferResult moveAmountSerializableNoWaitMinor(long fromAccountId, long toAccountId, long amount) {
+        return writeLimiter.call(() -> accountRepository.moveAmountSerializableNoWaitMinor(fromAccountId, toAccountId, amount));
+    }
+
+    public BigDecimal getTotalBalances() {
+        return readLimiter.call(accountRepository::getTotalBalances);
+    }
+
+    public BigDecimal getTotalBalancesCommitted() {
+        return readLimiter.call(accountRepository::getTotalBalancesCommitted);
+    }
+
+    public List<Account> getAccounts(long page, long pageSize) {
+        return readLimiter.call(() -> accountRepository.getAccounts(page, pageSize));
+    }
+
+    AdaptiveLimiter getWriteLimiter() {
+        return writeLimiter;
+    }
+}
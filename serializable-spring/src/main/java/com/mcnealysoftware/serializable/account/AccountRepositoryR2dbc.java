@@ -0,0 +1,137 @@
+package com.mcnealysoftware.serializable.account;
+
+import com.mcnealysoftware.minorunits.MinorUnits;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+
+import static com.mcnealysoftware.minorunits.MinorUnits.fromMinor;
+import static com.mcnealysoftware.minorunits.MinorUnits.toMinor;
+
+/**
+ * Non-blocking version of {@link AccountRepositoryJdbc}. Nothing is sent to the database until the returned
+ * publisher is subscribed to, and no thread is parked while a query is in flight.
+ * Isolation levels are set through a {@link TransactionalOperator} instead of {@code @Transactional}.
+ */
+@Repository
+public class AccountRepositoryR2dbc {
+
+    private final DatabaseClient databaseClient;
+    private final ReactiveTransactionManager transactionManager;
+
+    @Autowired
+    public AccountRepositoryR2dbc(ConnectionFactory connectionFactory) {
+        this.databaseClient = DatabaseClient.create(connectionFactory);
+        this.transactionManager = new R2dbcTransactionManager(connectionFactory);
+    }
+
+    public Mono<Long> createAccount(String name, BigDecimal balance) {
+        return databaseClient.sql("INSERT INTO account (name, balance_minor) VALUES (:name, :balance)")
+                .bind("name", name)
+                .bind("balance", toMinor(balance))
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .as(operator(Isolation.READ_UNCOMMITTED, false)::transactional);
+    }
+
+    public Mono<BigDecimal> getBalance(long accountId) {
+        return getBalanceMinor(accountId).map(MinorUnits::fromMinor);
+    }
+
+    public Mono<Long> getBalanceMinor(long accountId) {
+        return selectBalance("SELECT balance_minor FROM account WHERE id = :id", accountId)
+                .as(operator(Isolation.READ_COMMITTED, true)::transactional);
+    }
+
+    public Mono<Void> moveAmount(long fromAccountId, long toAccountId, BigDecimal amount) {
+        return moveAmountMinor(fromAccountId, toAccountId, toMinor(amount));
+    }
+
+    public Mono<Void> moveAmountMinor(long fromAccountId, long toAccountId, long amount) {
+        return updateBalance("UPDATE account SET balance_minor = balance_minor - :amount WHERE id = :id", fromAccountId, amount)
+                .then(updateBalance("UPDATE account SET balance_minor = balance_minor + :amount WHERE id = :id", toAccountId, amount))
+                .as(operator(Isolation.READ_COMMITTED, false)::transactional);
+    }
+
+    /**
+     * Same ordered FOR UPDATE locking as {@link AccountRepositoryJdbc#moveAmountSerializable}.
+     */
+    public Mono<Void> moveAmountSerializable(long fromAccountId, long toAccountId, BigDecimal amount) {
+        return lockAndMove(fromAccountId, toAccountId, toMinor(amount))
+                .as(operator(Isolation.SERIALIZABLE, false)::transactional);
+    }
+
+    private Mono<Void> lockAndMove(long fromAccountId, long toAccountId, long amount) {
+        // requires a deterministic order of locking rows, here use the lower account id
+        if (fromAccountId > toAccountId) {
+            return lockAndMove(toAccountId, fromAccountId, -amount);
+        }
+        // a missing account fails the transaction, like the EmptyResultDataAccessException of the JDBC version,
+        // instead of skipping its update and moving the amount into or out of nowhere
+        return selectBalance("SELECT balance_minor FROM account WHERE id = :id FOR UPDATE", fromAccountId)
+                .switchIfEmpty(Mono.error(new EmptyResultDataAccessException(1)))
+                .flatMap(fromBalance -> updateBalance("UPDATE account SET balance_minor = :amount WHERE id = :id", fromAccountId, fromBalance - amount))
+                .then(selectBalance("SELECT balance_minor FROM account WHERE id = :id FOR UPDATE", toAccountId)
+                        .switchIfEmpty(Mono.error(new EmptyResultDataAccessException(1))))
+                .flatMap(toBalance -> updateBalance("UPDATE account SET balance_minor = :amount WHERE id = :id", toAccountId, toBalance + amount));
+    }
+
+    public Flux<Account> getAccounts(long page, long pageSize) {
+        return databaseClient.sql("SELECT id, name, balance_minor FROM account LIMIT :limit OFFSET :offset")
+                .bind("limit", pageSize)
+                .bind("offset", page * pageSize)
+                .map(row -> new Account(
+                        row.get("id", Long.class),
+                        row.get("name", String.class),
+                        row.get("balance_minor", Long.class)))
+                .all()
+                .as(operator(Isolation.READ_COMMITTED, true)::transactional);
+    }
+
+    public Mono<BigDecimal> getTotalBalances() {
+        return databaseClient.sql("SELECT COALESCE(SUM(balance_minor), 0) FROM account")
+                .map(row -> fromMinor(row.get(0, Long.class)))
+                .one()
+                .as(operator(Isolation.READ_UNCOMMITTED, true)::transactional);
+    }
+
+    public Mono<BigDecimal> getTotalBalancesCommitted() {
+        return databaseClient.sql("SELECT COALESCE(SUM(balance_minor), 0) FROM account")
+                .map(row -> fromMinor(row.get(0, Long.class)))
+                .one()
+                .as(operator(Isolation.READ_COMMITTED, true)::transactional);
+    }
+
+    private Mono<Long> selectBalance(String sql, long accountId) {
+        return databaseClient.sql(sql)
+                .bind("id", accountId)
+                .map(row -> row.get("balance_minor", Long.class))
+                .one();
+    }
+
+    private Mono<Void> updateBalance(String sql, long accountId, long amount) {
+        return databaseClient.sql(sql)
+                .bind("amount", amount)
+                .bind("id", accountId)
+                .then();
+    }
+
+    private TransactionalOperator operator(Isolation isolation, boolean readOnly) {
+        final var definition = new DefaultTransactionDefinition();
+        definition.setIsolationLevel(isolation.value());
+        definition.setReadOnly(readOnly);
+        return TransactionalOperator.create(transactionManager, definition);
+    }
+}
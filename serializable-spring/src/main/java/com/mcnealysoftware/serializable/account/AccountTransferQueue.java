@@ -0,0 +1,125 @@
+package com.mcnealysoftware.serializable.account;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static com.mcnealysoftware.minorunits.MinorUnits.toMinor;
+
+/**
+ * Transfers that are accepted right away and applied later. {@link #submitTransfer} is a single insert, workers call
+ * {@link #processBatch} to apply what's pending, see {@link AccountTransferQueueWorkers}.
+ */
+@Repository
+public class AccountTransferQueue {
+
+    public enum State {
+        PENDING, DONE, FAILED
+    }
+
+    private record TransferRequest(long id, long fromAccountId, long toAccountId, long amount) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final AccountRepositoryJdbc accountRepository;
+
+    @Autowired
+    public AccountTransferQueue(DataSource dataSource, AccountRepositoryJdbc accountRepository) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.accountRepository = accountRepository;
+    }
+
+    /**
+     * Queues a transfer. Touches neither account, so it's as fast under load as it is when idle.
+     *
+     * @return Transfer request ID.
+     */
+    @Transactional(readOnly = false, isolation = Isolation.READ_COMMITTED)
+    public long submitTransfer(long fromAccountId, long toAccountId, BigDecimal amount) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(
+                con -> {
+                    var ps = con.prepareStatement(
+                            "INSERT INTO transfer_request (from_account_id, to_account_id, amount_minor) VALUES (?, ?, ?)", PreparedStatement.RETURN_GENERATED_KEYS);
+                    ps.setLong(1, fromAccountId);
+                    ps.setLong(2, toAccountId);
+                    ps.setLong(3, toMinor(amount));
+                    return ps;
+                }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+
+    @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
+    public State getState(long transferRequestId) {
+        return State.valueOf(jdbcTemplate.queryForObject("SELECT state FROM transfer_request WHERE id = ?", String.class, transferRequestId));
+    }
+
+    /**
+     * Claims up to batchSize pending transfers and applies them in one transaction. SKIP LOCKED passes over the
+     * requests another worker has claimed, so workers never wait on each other for the queue.
+     * <p>
+     * Each transfer goes through {@link AccountRepositoryJdbc#moveAmountSerializableMinor}, but with several
+     * transfers in one transaction its lower ID first rule is not enough, two workers could still lock in opposite
+     * orders across transfers. So all accounts of the batch are locked up front, lowest ID first.
+     * <p>
+     * READ_COMMITTED so the claim takes no gap lock on the queue index, which would block new submits.
+     *
+     * @return Number of transfer requests processed, 0 when nothing was pending.
+     */
+    @Transactional(readOnly = false, isolation = Isolation.READ_COMMITTED)
+    public int processBatch(int batchSize) {
+        final var requests = jdbcTemplate.query(
+                "SELECT id, from_account_id, to_account_id, amount_minor FROM transfer_request WHERE state = 'PENDING' ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED",
+                (rs, rowNum) -> new TransferRequest(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4)),
+                batchSize);
+        if (requests.isEmpty()) {
+            return 0;
+        }
+
+        final var accountIds = new TreeSet<Long>();
+        for (TransferRequest request : requests) {
+            accountIds.add(request.fromAccountId());
+            accountIds.add(request.toAccountId());
+        }
+        final var existingAccountIds = new HashSet<>(namedParameterJdbcTemplate.queryForList(
+                "SELECT id FROM account WHERE id IN (:ids) ORDER BY id FOR UPDATE", Map.of("ids", accountIds), Long.class));
+
+        final var done = new ArrayList<Long>();
+        final var failed = new ArrayList<Long>();
+        for (TransferRequest request : requests) {
+            if (existingAccountIds.contains(request.fromAccountId()) && existingAccountIds.contains(request.toAccountId())) {
+                accountRepository.moveAmountSerializableMinor(request.fromAccountId(), request.toAccountId(), request.amount());
+                done.add(request.id());
+            } else {
+                // would fail on every retry, so don't leave it pending
+                failed.add(request.id());
+            }
+        }
+        markProcessed(done, State.DONE);
+        markProcessed(failed, State.FAILED);
+        return requests.size();
+    }
+
+    private void markProcessed(List<Long> transferRequestIds, State state) {
+        if (!transferRequestIds.isEmpty()) {
+            namedParameterJdbcTemplate.update("UPDATE transfer_request SET state = :state, processed_timestamp = NOW() WHERE id IN (:ids)",
+                    Map.of("state", state.name(), "ids", transferRequestIds));
+        }
+    }
+}
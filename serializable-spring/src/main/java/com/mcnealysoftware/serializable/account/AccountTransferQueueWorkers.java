@@ -0,0 +1,95 @@
+package com.mcnealysoftware.serializable.account;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Virtual threads that keep draining the {@link AccountTransferQueue}. More workers means more transfers applied at
+ * the same time, they skip each other's claimed requests instead of waiting. Started with the application when
+ * account.transfer-queue.workers is above 0.
+ */
+@Service
+public class AccountTransferQueueWorkers implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountTransferQueueWorkers.class);
+
+    private final AccountTransferQueue transferQueue;
+    private final int workers;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+
+    @Autowired
+    public AccountTransferQueueWorkers(AccountTransferQueue transferQueue,
+                                       @Value("${account.transfer-queue.workers:0}") int workers,
+                                       @Value("${account.transfer-queue.batch-size:50}") int batchSize,
+                                       @Value("${account.transfer-queue.poll-interval:PT0.1S}") Duration pollInterval) {
+        this.transferQueue = transferQueue;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+    }
+
+    @Override
+    public synchronized void start() {
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            threads.add(Thread.ofVirtual().name("transfer-queue-worker-" + i).start(this::work));
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        // no interrupt, it would close the connection of a batch in progress, the workers notice within a poll
+        running = false;
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        threads.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return workers > 0;
+    }
+
+    private void work() {
+        while (running) {
+            try {
+                // only sleep when the queue is drained, a full batch means there is probably more
+                if (transferQueue.processBatch(batchSize) < batchSize) {
+                    Thread.sleep(pollInterval);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                // the batch rolled back and stays pending, try again after a pause
+                log.warn("Transfer batch failed", e);
+                try {
+                    Thread.sleep(pollInterval);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.mcnealysoftware.serializable.account;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gets a new instance ready before it reports ready, instead of on its first requests. Runners are called before the
+ * ApplicationReadyEvent, so readiness only turns to ACCEPTING_TRAFFIC once this is done. Opens every connection the
+ * Hikari pool may have, so no request waits for one to be opened, and prepares the hot statements on each of them.
+ * With useServerPrepStmts and cachePrepStmts on the JDBC URL they stay prepared on the server, without them the
+ * driver, the table caches and Hibernate's query cache are still warm.
+ * <p>
+ * Only runs when account.warm-up.enabled is true, which the service profile sets.
+ */
+@Service
+public class AccountWarmUp implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountWarmUp.class);
+
+    /**
+     * Run once on every connection, with an ID that doesn't exist.
+     */
+    private static final List<String> READS = List.of(
+            "SELECT balance_minor FROM account WHERE id = ?",
+            "SELECT state FROM transfer_request WHERE id = ?");
+    /**
+     * Only prepared, running them would lock or write.
+     */
+    private static final List<String> WRITES = List.of(
+            "SELECT balance_minor FROM account WHERE id = ? FOR UPDATE",
+            "SELECT balance_minor FROM account WHERE id = ? FOR UPDATE NOWAIT",
+            "UPDATE account SET balance_minor = ? WHERE id = ?",
+            "INSERT INTO account (name, balance_minor) VALUES (?, ?)");
+    private static final List<String> JPQL = List.of(
+            "UPDATE Account SET balanceMinor = balanceMinor - ?1 WHERE id = ?2",
+            "UPDATE Account SET balanceMinor = balanceMinor + ?1 WHERE id = ?2",
+            "SELECT COALESCE(SUM(balanceMinor), 0L) FROM Account");
+
+    private final DataSource dataSource;
+    private final EntityManagerFactory entityManagerFactory;
+    private final boolean enabled;
+
+    @Autowired
+    public AccountWarmUp(DataSource dataSource,
+                         EntityManagerFactory entityManagerFactory,
+                         @Value("${account.warm-up.enabled:false}") boolean enabled) {
+        this.dataSource = dataSource;
+        this.entityManagerFactory = entityManagerFactory;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            warmUp();
+        }
+    }
+
+    /**
+     * @return Number of connections warmed up.
+     */
+    public int warmUp() {
+        final var start = System.nanoTime();
+        final var connections = warmUpConnections();
+        try (final var entityManager = entityManagerFactory.createEntityManager()) {
+            entityManager.find(Account.class, 0L);
+            for (String jpql : JPQL) {
+                entityManager.createQuery(jpql);
+            }
+        }
+        log.info("Warmed up {} connections in {} ms", connections, (System.nanoTime() - start) / 1_000_000);
+        return connections;
+    }
+
+    private int warmUpConnections() {
+        // all of them borrowed at once, otherwise the pool keeps handing out the same one
+        final var connections = new ArrayList<Connection>();
+        try {
+            final var poolSize = dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            for (int i = 0; i < poolSize; i++) {
+                final var connection = dataSource.getConnection();
+                connections.add(connection);
+                for (String sql : READS) {
+                    try (final var statement = connection.prepareStatement(sql)) {
+                        statement.setLong(1, 0L);
+                        statement.executeQuery().close();
+                    }
+                }
+                for (String sql : WRITES) {
+                    connection.prepareStatement(sql).close();
+                }
+            }
+            return connections.size();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            for (Connection connection : connections) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    log.warn("Could not return a warmed up connection", e);
+                }
+            }
+        }
+    }
+}
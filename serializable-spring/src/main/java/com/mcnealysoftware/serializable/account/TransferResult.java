@@ -0,0 +1,19 @@
+package com.mcnealysoftware.serializable.account;
+
+/**
+ * Outcome of a transfer that doesn't wait for row locks, or that may be a replay.
+ */
+public enum TransferResult {
+    /**
+     * The transfer is committed.
+     */
+    APPLIED,
+    /**
+     * One of the accounts was locked by another transaction. Nothing was changed, the caller decides when to try again.
+     */
+    CONTENDED,
+    /**
+     * The idempotency key was used before, the transfer it stands for is already committed. Nothing was changed.
+     */
+    REPLAYED
+}
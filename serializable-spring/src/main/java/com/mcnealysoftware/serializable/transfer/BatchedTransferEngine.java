@@ -0,0 +1,240 @@
+package com.mcnealysoftware.serializable.transfer;
+
+import com.mcnealysoftware.serializable.account.TransferResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Puts transfers from many callers together and applies them in one transaction. All accounts of a batch are locked
+ * at once in ID order, and each account gets one UPDATE with the sum of its transfers, so a hot account is written
+ * once per batch instead of once per transfer. Callers wait up to the window for a batch to fill, and return when it
+ * has committed.
+ * <p>
+ * A batch always commits on its own, never as part of a transaction the caller may have open.
+ */
+@Service
+public class BatchedTransferEngine implements TransferEngine, AutoCloseable {
+
+    /**
+     * @param idempotencyKey Null for a transfer without one.
+     */
+    private record PendingTransfer(long fromAccountId, long toAccountId, long amountMinor, String idempotencyKey,
+                                   CompletableFuture<TransferResult> done) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final IdempotencyKeys idempotencyKeys;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    private List<PendingTransfer> pending = new ArrayList<>();
+    /**
+     * Timer of the pending batch, null while nothing is pending.
+     */
+    private ScheduledFuture<?> window;
+    private boolean closed;
+
+    /**
+     * @param window       How long the first transfer of a batch waits for others to join.
+     * @param maxBatchSize A batch is applied right away once it has this many transfers.
+     */
+    @Autowired
+    public BatchedTransferEngine(DataSource dataSource,
+                                 PlatformTransactionManager transactionManager,
+                                 IdempotencyKeys idempotencyKeys,
+                                 @Value("${account.transfer.batched.window:PT0.002S}") Duration window,
+                                 @Value("${account.transfer.batched.max-batch-size:100}") int maxBatchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.idempotencyKeys = idempotencyKeys;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public String name() {
+        return "batched";
+    }
+
+    @Override
+    public void transfer(long fromAccountId, long toAccountId, long amountMinor) {
+        submit(new PendingTransfer(fromAccountId, toAccountId, amountMinor, null, new CompletableFuture<>()));
+    }
+
+    /**
+     * The key is recorded in the transaction of the batch.
+     */
+    @Override
+    public TransferResult transfer(long fromAccountId, long toAccountId, long amountMinor, String idempotencyKey) {
+        return submit(new PendingTransfer(fromAccountId, toAccountId, amountMinor, idempotencyKey, new CompletableFuture<>()));
+    }
+
+    private TransferResult submit(PendingTransfer transfer) {
+        lock.lock();
+        try {
+            // shutting down, requests still in flight are turned away instead of waiting for a batch that never comes
+            if (closed) {
+                throw new IllegalStateException("BatchedTransferEngine is closed");
+            }
+            pending.add(transfer);
+            if (pending.size() >= maxBatchSize) {
+                final var batch = takePending();
+                Thread.startVirtualThread(() -> dispatch(batch));
+            } else if (pending.size() == 1) {
+                final var batch = pending;
+                try {
+                    window = timer.schedule(() -> closeWindow(batch), windowNanos, TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    pending.remove(transfer);
+                    throw e;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            return transfer.done().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Applies what is pending, transfers after this fail.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        timer.shutdown();
+        final var batch = takePending();
+        if (!batch.isEmpty()) {
+            dispatch(batch);
+        }
+    }
+
+    /**
+     * Dispatches the batch the timer was started for, unless it filled up and was taken before the window closed.
+     */
+    private void closeWindow(List<PendingTransfer> batch) {
+        lock.lock();
+        try {
+            // a timer that was already running when it got cancelled, pending is the next batch by now
+            if (pending != batch) {
+                return;
+            }
+            takePending();
+        } finally {
+            lock.unlock();
+        }
+        Thread.startVirtualThread(() -> dispatch(batch));
+    }
+
+    private List<PendingTransfer> takePending() {
+        lock.lock();
+        try {
+            if (window != null) {
+                window.cancel(false);
+                window = null;
+            }
+            final var batch = pending;
+            pending = new ArrayList<>();
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatch(List<PendingTransfer> batch) {
+        // only answered once committed, a replay of a key first recorded in this batch is only true if it commits
+        final var results = new IdentityHashMap<PendingTransfer, TransferResult>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> apply(batch, results));
+        } catch (RuntimeException e) {
+            batch.forEach(transfer -> transfer.done().completeExceptionally(e));
+            return;
+        }
+        // the ones failed for a missing account or a reused key are already done
+        batch.forEach(transfer -> transfer.done().complete(results.getOrDefault(transfer, TransferResult.APPLIED)));
+    }
+
+    private void apply(List<PendingTransfer> batch, Map<PendingTransfer, TransferResult> results) {
+        final var accountIds = new TreeSet<Long>();
+        for (PendingTransfer transfer : batch) {
+            accountIds.add(transfer.fromAccountId());
+            accountIds.add(transfer.toAccountId());
+        }
+        final var found = new HashSet<>(namedParameterJdbcTemplate.queryForList(
+                "SELECT id FROM account WHERE id IN (:ids) ORDER BY id FOR UPDATE", Map.of("ids", accountIds), Long.class));
+
+        // net change per account, in ID order
+        final var deltas = new TreeMap<Long, Long>();
+        for (PendingTransfer transfer : batch) {
+            if (!found.contains(transfer.fromAccountId()) || !found.contains(transfer.toAccountId())) {
+                final var missing = found.contains(transfer.fromAccountId()) ? transfer.toAccountId() : transfer.fromAccountId();
+                transfer.done().completeExceptionally(new EmptyResultDataAccessException("No account " + missing, 1));
+                continue;
+            }
+            if (transfer.idempotencyKey() != null) {
+                try {
+                    if (!idempotencyKeys.record(transfer.idempotencyKey(), transfer.fromAccountId(), transfer.toAccountId(), transfer.amountMinor())) {
+                        results.put(transfer, TransferResult.REPLAYED);
+                        continue;
+                    }
+                } catch (IllegalArgumentException e) {
+                    transfer.done().completeExceptionally(e);
+                    continue;
+                }
+            }
+            deltas.merge(transfer.fromAccountId(), -transfer.amountMinor(), Long::sum);
+            deltas.merge(transfer.toAccountId(), transfer.amountMinor(), Long::sum);
+        }
+
+        final var updates = new ArrayList<Object[]>();
+        deltas.forEach((accountId, delta) -> {
+            if (delta != 0L) {
+                updates.add(new Object[]{delta, accountId});
+            }
+        });
+        jdbcTemplate.batchUpdate("UPDATE account SET balance_minor = balance_minor + ? WHERE id = ?", updates);
+    }
+}
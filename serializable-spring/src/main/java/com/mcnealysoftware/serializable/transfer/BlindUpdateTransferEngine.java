@@ -0,0 +1,56 @@
+package com.mcnealysoftware.serializable.transfer;
+
+import com.mcnealysoftware.serializable.account.TransferResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.JdbcUpdateAffectedIncorrectNumberOfRowsException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+
+/**
+ * Adds to both balances in one UPDATE, without reading them first. InnoDB locks the two rows in primary key order, so
+ * two of these never deadlock, and the locks are held for one statement only. Best for hot accounts, as long as
+ * nothing has to be decided on the balance before it changes.
+ */
+@Service
+public class BlindUpdateTransferEngine implements TransferEngine {
+
+    private static final String UPDATE = "UPDATE account SET balance_minor = balance_minor + CASE WHEN id = ? THEN ? ELSE ? END WHERE id IN (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IdempotencyKeys idempotencyKeys;
+
+    @Autowired
+    public BlindUpdateTransferEngine(DataSource dataSource, IdempotencyKeys idempotencyKeys) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.idempotencyKeys = idempotencyKeys;
+    }
+
+    @Override
+    public String name() {
+        return "blind-update";
+    }
+
+    @Override
+    @Transactional(readOnly = false, isolation = Isolation.READ_COMMITTED)
+    public void transfer(long fromAccountId, long toAccountId, long amountMinor) {
+        final var updated = jdbcTemplate.update(UPDATE, fromAccountId, -amountMinor, amountMinor, fromAccountId, toAccountId);
+        if (updated != 2) {
+            // rolls back the one that was there
+            throw new JdbcUpdateAffectedIncorrectNumberOfRowsException(UPDATE, 2, updated);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = false, isolation = Isolation.READ_COMMITTED)
+    public TransferResult transfer(long fromAccountId, long toAccountId, long amountMinor, String idempotencyKey) {
+        if (!idempotencyKeys.record(idempotencyKey, fromAccountId, toAccountId, amountMinor)) {
+            return TransferResult.REPLAYED;
+        }
+        transfer(fromAccountId, toAccountId, amountMinor);
+        return TransferResult.APPLIED;
+    }
+}
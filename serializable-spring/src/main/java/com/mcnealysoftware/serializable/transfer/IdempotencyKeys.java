@@ -0,0 +1,123 @@
+package com.mcnealysoftware.serializable.transfer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Idempotency keys of transfers. A key is recorded in the transfer_idempotency_key table in the same transaction as
+ * its transfer, so either both commit or neither does, and the primary key makes a second transfer with the same key
+ * fail. A replay running at the same time as the original waits for it on that key.
+ * <p>
+ * The most recent keys are also kept in memory, once committed, so a client retrying a transfer that went through is
+ * answered without a transaction.
+ */
+@Repository
+public class IdempotencyKeys {
+
+    private record Transfer(long fromAccountId, long toAccountId, long amountMinor) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Transfer> recent;
+
+    /**
+     * @param cacheSize How many of the most recent keys are kept in memory.
+     */
+    @Autowired
+    public IdempotencyKeys(DataSource dataSource, @Value("${account.transfer.idempotency.cache-size:10000}") int cacheSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Transfer> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Records a key in the transaction of the transfer, before any balance is touched. A reused key leaves the
+     * transaction usable, a batch of transfers can go on without the one that reused it.
+     *
+     * @return false if the key was recorded before, and the transfer must not be applied again.
+     * @throws IllegalArgumentException If the key was recorded for a different transfer.
+     */
+    @Transactional(propagation = Propagation.MANDATORY, noRollbackFor = IllegalArgumentException.class)
+    public boolean record(String idempotencyKey, long fromAccountId, long toAccountId, long amountMinor) {
+        try {
+            jdbcTemplate.update("INSERT INTO transfer_idempotency_key (idempotency_key, from_account_id, to_account_id, amount_minor) VALUES (?, ?, ?, ?)",
+                    idempotencyKey, fromAccountId, toAccountId, amountMinor);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // only the statement failed, the transaction goes on
+            final var recorded = jdbcTemplate.queryForObject("SELECT from_account_id, to_account_id, amount_minor FROM transfer_idempotency_key WHERE idempotency_key = ?",
+                    (rs, rowNum) -> new Transfer(rs.getLong(1), rs.getLong(2), rs.getLong(3)),
+                    idempotencyKey);
+            check(idempotencyKey, recorded, new Transfer(fromAccountId, toAccountId, amountMinor));
+            return false;
+        }
+    }
+
+    /**
+     * Only looks at the keys in memory.
+     *
+     * @return true if the key is known to be committed for this transfer.
+     * @throws IllegalArgumentException If the key is known for a different transfer.
+     */
+    public boolean isRecent(String idempotencyKey, long fromAccountId, long toAccountId, long amountMinor) {
+        final Transfer recorded;
+        lock.lock();
+        try {
+            recorded = recent.get(idempotencyKey);
+        } finally {
+            lock.unlock();
+        }
+        if (recorded == null) {
+            return false;
+        }
+        check(idempotencyKey, recorded, new Transfer(fromAccountId, toAccountId, amountMinor));
+        return true;
+    }
+
+    /**
+     * Keeps a key in memory. Only after the transaction that recorded it has committed, a rolled back one must be
+     * able to run again.
+     */
+    public void remember(String idempotencyKey, long fromAccountId, long toAccountId, long amountMinor) {
+        lock.lock();
+        try {
+            recent.put(idempotencyKey, new Transfer(fromAccountId, toAccountId, amountMinor));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Clients don't retry forever, keys older than that can go.
+     *
+     * @return Number of keys deleted.
+     */
+    @Transactional(readOnly = false)
+    public int deleteOlderThan(Duration age) {
+        return jdbcTemplate.update("DELETE FROM transfer_idempotency_key WHERE timestamp < ?", Timestamp.from(Instant.now().minus(age)));
+    }
+
+    private static void check(String idempotencyKey, Transfer recorded, Transfer transfer) {
+        if (!recorded.equals(transfer)) {
+            throw new IllegalArgumentException("Idempotency key " + idempotencyKey + " was used for a different transfer");
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.mcnealysoftware.serializable.transfer;
+
+import com.mcnealysoftware.serializable.account.TransferResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+
+/**
+ * Reads both balances without locking them, and only writes a new balance if it's still the one that was read. If
+ * another transfer got there first the whole transaction is retried. Nothing waits on a lock while deciding, which
+ * pays off when conflicts are rare and turns into a lot of retries when they're not.
+ */
+@Service
+public class OptimisticTransferEngine implements TransferEngine {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IdempotencyKeys idempotencyKeys;
+
+    @Autowired
+    public OptimisticTransferEngine(DataSource dataSource, IdempotencyKeys idempotencyKeys) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.idempotencyKeys = idempotencyKeys;
+    }
+
+    @Override
+    public String name() {
+        return "optimistic";
+    }
+
+    @Override
+    @Retryable(retryFor = ConcurrencyFailureException.class, maxAttempts = 100, backoff = @Backoff(0))
+    @Transactional(readOnly = false, isolation = Isolation.READ_COMMITTED)
+    public void transfer(long fromAccountId, long toAccountId, long amountMinor) {
+        apply(fromAccountId, toAccountId, amountMinor);
+    }
+
+    /**
+     * A retry records the key again, the attempt that failed rolled it back.
+     */
+    @Override
+    @Retryable(retryFor = ConcurrencyFailureException.class, maxAttempts = 100, backoff = @Backoff(0))
+    @Transactional(readOnly = false, isolation = Isolation.READ_COMMITTED)
+    public TransferResult transfer(long fromAccountId, long toAccountId, long amountMinor, String idempotencyKey) {
+        if (!idempotencyKeys.record(idempotencyKey, fromAccountId, toAccountId, amountMinor)) {
+            return TransferResult.REPLAYED;
+        }
+        apply(fromAccountId, toAccountId, amountMinor);
+        return TransferResult.APPLIED;
+    }
+
+    private void apply(long fromAccountId, long toAccountId, long amountMinor) {
+        // writes still lock, in ID order they can't deadlock each other
+        final var firstAccountId = Math.min(fromAccountId, toAccountId);
+        final var secondAccountId = Math.max(fromAccountId, toAccountId);
+        final var firstAmount = firstAccountId == fromAccountId ? -amountMinor : amountMinor;
+
+        final long firstBalance = jdbcTemplate.queryForObject("SELECT balance_minor FROM account WHERE id = ?", Long.class, firstAccountId);
+        final long secondBalance = jdbcTemplate.queryForObject("SELECT balance_minor FROM account WHERE id = ?", Long.class, secondAccountId);
+        updateIfUnchanged(firstAccountId, firstBalance, firstBalance + firstAmount);
+        updateIfUnchanged(secondAccountId, secondBalance, secondBalance - firstAmount);
+    }
+
+    private void updateIfUnchanged(long accountId, long expectedBalance, long newBalance) {
+        if (jdbcTemplate.update("UPDATE account SET balance_minor = ? WHERE id = ? AND balance_minor = ?", newBalance, accountId, expectedBalance) == 0) {
+            throw new OptimisticLockingFailureException("Balance of account " + accountId + " changed since it was read");
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.mcnealysoftware.serializable.transfer;
+
+import com.mcnealysoftware.serializable.account.AccountRepositoryJdbc;
+import com.mcnealysoftware.serializable.account.TransferResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Reads and writes both balances under FOR UPDATE, lowest account ID first, see
+ * {@link AccountRepositoryJdbc#moveAmountSerializableMinor}. Callers queue on the row locks instead of failing, for
+ * when the balance has to be looked at before it changes and contention is moderate.
+ */
+@Service
+public class PessimisticTransferEngine implements TransferEngine {
+
+    private final AccountRepositoryJdbc accountRepository;
+    private final IdempotencyKeys idempotencyKeys;
+
+    @Autowired
+    public PessimisticTransferEngine(AccountRepositoryJdbc accountRepository, IdempotencyKeys idempotencyKeys) {
+        this.accountRepository = accountRepository;
+        this.idempotencyKeys = idempotencyKeys;
+    }
+
+    @Override
+    public String name() {
+        return "pessimistic";
+    }
+
+    @Override
+    public void transfer(long fromAccountId, long toAccountId, long amountMinor) {
+        accountRepository.moveAmountSerializableMinor(fromAccountId, toAccountId, amountMinor);
+    }
+
+    /**
+     * The repository joins this transaction, key and balances commit together.
+     */
+    @Override
+    @Transactional(readOnly = false, isolation = Isolation.SERIALIZABLE)
+    public TransferResult transfer(long fromAccountId, long toAccountId, long amountMinor, String idempotencyKey) {
+        if (!idempotencyKeys.record(idempotencyKey, fromAccountId, toAccountId, amountMinor)) {
+            return TransferResult.REPLAYED;
+        }
+        accountRepository.moveAmountSerializableMinor(fromAccountId, toAccountId, amountMinor);
+        return TransferResult.APPLIED;
+    }
+}
@@ -0,0 +1,32 @@
+package com.mcnealysoftware.serializable.transfer;
+
+import com.mcnealysoftware.serializable.account.TransferResult;
+
+/**
+ * One way of moving money between two accounts. They all end with the same balances, what differs is how they behave
+ * under contention: who waits, who retries, and how many transactions it takes. Pick one per workload through
+ * {@link TransferEngines}.
+ * <p>
+ * An account that doesn't exist fails the transfer with a DataAccessException, and neither balance changes.
+ */
+public interface TransferEngine {
+
+    /**
+     * What account.transfer.engine refers to this engine by.
+     */
+    String name();
+
+    /**
+     * @param fromAccountId Different from toAccountId.
+     */
+    void transfer(long fromAccountId, long toAccountId, long amountMinor);
+
+    /**
+     * Same as {@link #transfer(long, long, long)}, but at most once per idempotency key. The key is recorded with
+     * {@link IdempotencyKeys#record} in the same transaction as the transfer.
+     *
+     * @return APPLIED, or REPLAYED if the key was used for this transfer before.
+     * @throws IllegalArgumentException If the key was used for a different transfer.
+     */
+    TransferResult transfer(long fromAccountId, long toAccountId, long amountMinor, String idempotencyKey);
+}
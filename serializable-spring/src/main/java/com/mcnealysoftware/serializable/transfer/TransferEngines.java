@@ -0,0 +1,70 @@
+package com.mcnealysoftware.serializable.transfer;
+
+import com.mcnealysoftware.serializable.account.TransferResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.mcnealysoftware.minorunits.MinorUnits.toMinor;
+
+/**
+ * Picks the {@link TransferEngine} for a transfer. Each kind of transfer, like "payroll" or "merchant", has its own
+ * engine in account.transfer.engine.&lt;kind&gt;, everything else uses account.transfer.engine, pessimistic unless
+ * configured otherwise. Looked up on every call, so a refreshed property source switches engines without a restart.
+ * <p>
+ * Transfers with an idempotency key are checked against the recent keys in {@link IdempotencyKeys} first, a client
+ * retrying one that already went through doesn't reach an engine, let alone the account rows.
+ */
+@Service
+public class TransferEngines {
+
+    static final String DEFAULT_ENGINE = "pessimistic";
+
+    private final Map<String, TransferEngine> engines = new HashMap<>();
+    private final Environment environment;
+    private final IdempotencyKeys idempotencyKeys;
+
+    @Autowired
+    public TransferEngines(List<TransferEngine> engines, Environment environment, IdempotencyKeys idempotencyKeys) {
+        for (TransferEngine engine : engines) {
+            this.engines.put(engine.name(), engine);
+        }
+        this.environment = environment;
+        this.idempotencyKeys = idempotencyKeys;
+    }
+
+    public TransferEngine get(String name) {
+        final var engine = engines.get(name);
+        if (engine == null) {
+            throw new IllegalArgumentException("No transfer engine " + name + ", there are " + engines.keySet());
+        }
+        return engine;
+    }
+
+    public TransferEngine forKind(String kind) {
+        final var defaultEngine = environment.getProperty("account.transfer.engine", DEFAULT_ENGINE);
+        return get(environment.getProperty("account.transfer.engine." + kind, defaultEngine));
+    }
+
+    public void transfer(String kind, long fromAccountId, long toAccountId, BigDecimal amount) {
+        forKind(kind).transfer(fromAccountId, toAccountId, toMinor(amount));
+    }
+
+    /**
+     * Not for use inside a transaction of the caller, a key is only kept in memory once it has committed.
+     */
+    public TransferResult transfer(String kind, long fromAccountId, long toAccountId, BigDecimal amount, String idempotencyKey) {
+        final var amountMinor = toMinor(amount);
+        if (idempotencyKeys.isRecent(idempotencyKey, fromAccountId, toAccountId, amountMinor)) {
+            return TransferResult.REPLAYED;
+        }
+        final var result = forKind(kind).transfer(fromAccountId, toAccountId, amountMinor, idempotencyKey);
+        idempotencyKeys.remember(idempotencyKey, fromAccountId, toAccountId, amountMinor);
+        return result;
+    }
+}
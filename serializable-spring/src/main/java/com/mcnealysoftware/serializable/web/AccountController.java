@@ -0,0 +1,105 @@
+package com.mcnealysoftware.serializable.web;
+
+import com.mcnealysoftware.serializable.account.AccountRepositoryJdbc;
+import com.mcnealysoftware.serializable.account.TransferResult;
+import com.mcnealysoftware.serializable.transfer.TransferEngines;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.IncorrectUpdateSemanticsDataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Creating accounts, reading balances and moving money, over HTTP. Transfers go through {@link TransferEngines}, the
+ * optional kind picks the engine. A transfer sent with an Idempotency-Key header is applied once, however often the
+ * client retries it, a replay is answered the same way with Idempotent-Replayed set.
+ */
+@RestController
+public class AccountController {
+
+    public record CreateAccountRequest(String name, BigDecimal balance) {
+    }
+
+    public record AccountResponse(long id, String name, BigDecimal balance) {
+    }
+
+    public record TransferRequest(long fromAccountId, long toAccountId, BigDecimal amount, String kind) {
+    }
+
+    private final AccountRepositoryJdbc accountRepository;
+    private final TransferEngines transferEngines;
+
+    @Autowired
+    public AccountController(AccountRepositoryJdbc accountRepository, TransferEngines transferEngines) {
+        this.accountRepository = accountRepository;
+        this.transferEngines = transferEngines;
+    }
+
+    @PostMapping("/accounts")
+    public ResponseEntity<AccountResponse> createAccount(@RequestBody CreateAccountRequest request) {
+        if (request.balance() == null) {
+            throw new IllegalArgumentException("An account needs a balance");
+        }
+        final var id = accountRepository.createAccount(request.name(), request.balance());
+        return ResponseEntity.created(URI.create("/accounts/" + id))
+                .body(new AccountResponse(id, request.name(), request.balance()));
+    }
+
+    @GetMapping("/accounts/{id}/balance")
+    public BigDecimal getBalance(@PathVariable long id) {
+        return accountRepository.getBalance(id);
+    }
+
+    @GetMapping("/accounts")
+    public List<AccountResponse> getAccounts(@RequestParam(defaultValue = "0") long page,
+                                             @RequestParam(defaultValue = "100") long pageSize) {
+        return accountRepository.getAccounts(page, pageSize).stream()
+                .map(account -> new AccountResponse(account.getId(), account.getName(), account.getBalance()))
+                .toList();
+    }
+
+    @PostMapping("/transfers")
+    public ResponseEntity<Void> moveAmount(@RequestBody TransferRequest request,
+                                           @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (request.fromAccountId() == request.toAccountId() || request.amount() == null || request.amount().signum() <= 0) {
+            throw new IllegalArgumentException("A transfer needs two different accounts and a positive amount");
+        }
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > 255)) {
+            throw new IllegalArgumentException("An Idempotency-Key has 1 to 255 characters");
+        }
+        final var kind = request.kind() == null ? "default" : request.kind();
+        if (idempotencyKey == null) {
+            transferEngines.transfer(kind, request.fromAccountId(), request.toAccountId(), request.amount());
+            return ResponseEntity.noContent().build();
+        }
+        final var result = transferEngines.transfer(kind, request.fromAccountId(), request.toAccountId(), request.amount(), idempotencyKey);
+        return ResponseEntity.noContent()
+                .header("Idempotent-Replayed", String.valueOf(result == TransferResult.REPLAYED))
+                .build();
+    }
+
+    /**
+     * The engines report an account that doesn't exist with one or the other.
+     */
+    @ExceptionHandler({EmptyResultDataAccessException.class, IncorrectUpdateSemanticsDataAccessException.class})
+    public ResponseEntity<String> notFound(RuntimeException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+}
@@ -0,0 +1,82 @@
+package com.mcnealysoftware.serializable.web;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets as many requests run as the Hikari pool has connections, and a bounded number wait for one of them. Anything
+ * past that is answered with 503 right away, and so is a request that waited longer than maxWait. With virtual
+ * threads nothing else limits how many requests are taken on, without this they would all pile up in the pool's
+ * getConnection and time out there after 30 seconds.
+ */
+@Component
+public class BackpressureFilter extends OncePerRequestFilter {
+
+    private final Semaphore admitted;
+    private final Semaphore running;
+    private final long maxWaitNanos;
+
+    /**
+     * @param queuePerConnection How many requests may wait per connection in the pool.
+     */
+    @Autowired
+    public BackpressureFilter(DataSource dataSource,
+                              @Value("${account.http.queue-per-connection:4}") int queuePerConnection,
+                              @Value("${account.http.max-wait:PT0.5S}") Duration maxWait) throws SQLException {
+        this(dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize(), queuePerConnection, maxWait);
+    }
+
+    /**
+     * @param concurrency        How many requests run at the same time.
+     * @param queuePerConnection How many requests may wait for each of them.
+     */
+    public BackpressureFilter(int concurrency, int queuePerConnection, Duration maxWait) {
+        this.admitted = new Semaphore(concurrency * (1 + queuePerConnection));
+        this.running = new Semaphore(concurrency);
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        if (!admitted.tryAcquire()) {
+            reject(response);
+            return;
+        }
+        try {
+            if (!running.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                reject(response);
+                return;
+            }
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                running.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reject(response);
+        } finally {
+            admitted.release();
+        }
+    }
+
+    private static void reject(HttpServletResponse response) {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader("Retry-After", "1");
+    }
+}
@@ -0,0 +1,15 @@
+CREATE TABLE IF NOT EXISTS ledger_snapshot (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    timestamp TIMESTAMP DEFAULT NOW()
+);
+
+CREATE TABLE IF NOT EXISTS transfer (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    account_id BIGINT NOT NULL,
+    counterparty_id BIGINT NOT NULL,
+    amount DECIMAL NOT NULL,
+    snapshot_id BIGINT NULL,
+    timestamp TIMESTAMP DEFAULT NOW(),
+    INDEX transfer_account_snapshot (account_id, snapshot_id, amount),
+    INDEX transfer_snapshot_account (snapshot_id, account_id, amount)
+);
@@ -0,0 +1,16 @@
+-- Every ALTER commits on its own in MySQL, so the old column is only dropped once the new one is filled. A failure
+-- part way leaves balance in place with the data it had, never unscaled values under the new name.
+ALTER TABLE account ADD COLUMN balance_minor BIGINT NOT NULL DEFAULT 0;
+UPDATE account SET balance_minor = ROUND(COALESCE(balance, 0) * 100);
+ALTER TABLE account DROP COLUMN balance;
+
+-- the ledger indexes cover the amount, they are rebuilt with the new column in the same statement that drops the old one
+ALTER TABLE transfer ADD COLUMN amount_minor BIGINT NOT NULL DEFAULT 0;
+UPDATE transfer SET amount_minor = ROUND(amount * 100);
+ALTER TABLE transfer
+    DROP INDEX transfer_account_snapshot,
+    DROP INDEX transfer_snapshot_account,
+    DROP COLUMN amount,
+    ALTER COLUMN amount_minor DROP DEFAULT,
+    ADD INDEX transfer_account_snapshot (account_id, snapshot_id, amount_minor),
+    ADD INDEX transfer_snapshot_account (snapshot_id, account_id, amount_minor);
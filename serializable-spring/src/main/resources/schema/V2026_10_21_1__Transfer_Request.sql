@@ -0,0 +1,10 @@
+CREATE TABLE IF NOT EXISTS transfer_request (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    from_account_id BIGINT NOT NULL,
+    to_account_id BIGINT NOT NULL,
+    amount_minor BIGINT NOT NULL,
+    state VARCHAR(16) NOT NULL DEFAULT 'PENDING',
+    timestamp TIMESTAMP DEFAULT NOW(),
+    processed_timestamp TIMESTAMP NULL,
+    INDEX transfer_request_state (state, id)
+);
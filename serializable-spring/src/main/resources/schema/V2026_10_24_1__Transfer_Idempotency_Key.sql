@@ -0,0 +1,8 @@
+CREATE TABLE IF NOT EXISTS transfer_idempotency_key (
+    idempotency_key VARCHAR(255) PRIMARY KEY,
+    from_account_id BIGINT NOT NULL,
+    to_account_id BIGINT NOT NULL,
+    amount_minor BIGINT NOT NULL,
+    timestamp TIMESTAMP DEFAULT NOW(),
+    INDEX transfer_idempotency_key_timestamp (timestamp)
+);
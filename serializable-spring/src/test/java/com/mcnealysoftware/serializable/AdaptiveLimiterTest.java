@@ -0,0 +1,91 @@
+package com.mcnealysoftware.serializable;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdaptiveLimiterTest {
+
+    @Test
+    void rejectTest() throws InterruptedException {
+        final var limiter = new AdaptiveLimiter("test", 1, 1, 1, Duration.ZERO, e -> true);
+        final var started = new CountDownLatch(1);
+        final var finish = new CountDownLatch(1);
+        final var holder = Thread.startVirtualThread(() -> limiter.run(() -> {
+            started.countDown();
+            try {
+                finish.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }));
+        started.await();
+
+        assertThrows(AdaptiveLimiter.LimitExceededException.class, () -> limiter.call(() -> 1));
+
+        finish.countDown();
+        holder.join();
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(1, limiter.call(() -> 1));
+    }
+
+    @Test
+    void backoffTest() {
+        final var limiter = new AdaptiveLimiter("test", 50, 1, 100, Duration.ZERO, IllegalStateException.class::isInstance);
+        for (int i = 0; i < 10; i++) {
+            assertThrows(IllegalStateException.class, () -> limiter.run(() -> {
+                throw new IllegalStateException("deadlock");
+            }));
+        }
+        assertTrue(limiter.getLimit() < 50, "limit: " + limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void backoffTestOtherFailure() {
+        final var limiter = new AdaptiveLimiter("test", 50, 1, 100, Duration.ZERO, IllegalStateException.class::isInstance);
+        for (int i = 0; i < 10; i++) {
+            assertThrows(IllegalArgumentException.class, () -> limiter.run(() -> {
+                throw new IllegalArgumentException("no such account");
+            }));
+        }
+        assertEquals(50, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void limitTestConcurrent() throws InterruptedException {
+        final var limiter = new AdaptiveLimiter("test", 5, 1, 20, Duration.ofSeconds(10), e -> true);
+        final var running = new AtomicInteger();
+        final var maxRunning = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 1000; i++) {
+                executor.submit(() -> limiter.run(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    running.decrementAndGet();
+                }));
+            }
+
+            executor.shutdown();
+            executor.awaitTermination(100, TimeUnit.SECONDS);
+        }
+
+        assertTrue(maxRunning.get() <= 20, "max running: " + maxRunning.get());
+        assertEquals(0, limiter.getInFlight());
+    }
+}
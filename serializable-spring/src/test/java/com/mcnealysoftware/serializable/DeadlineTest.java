@@ -0,0 +1,125 @@
+package com.mcnealysoftware.serializable;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.mcnealysoftware.serializable.account.AccountRepositoryEntityManager;
+import com.mcnealysoftware.serializable.account.AccountRepositoryJdbc;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.mysql.MySQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Testcontainers
+public class DeadlineTest {
+
+    @Container
+    private static final MySQLContainer database = new MySQLContainer(DockerImageName.parse("mysql:8.0.36"));
+    @Autowired
+    AccountRepositoryJdbc dao;
+    @Autowired
+    AccountRepositoryEntityManager entityManagerDao;
+    @Autowired
+    DataSource dataSource;
+
+    @DynamicPropertySource
+    static void databaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", database::getJdbcUrl);
+        registry.add("spring.datasource.username", database::getUsername);
+        registry.add("spring.datasource.password", database::getPassword);
+        registry.add("spring.datasource.driver-class-name", database::getDriverClassName);
+        registry.add("spring.r2dbc.url", () -> "r2dbc:mysql://" + database.getHost() + ":" + database.getMappedPort(3306) + "/" + database.getDatabaseName());
+        registry.add("spring.r2dbc.username", database::getUsername);
+        registry.add("spring.r2dbc.password", database::getPassword);
+    }
+
+    @BeforeEach
+    void setUp() {
+        final var config = new HikariConfig();
+        config.setJdbcUrl(database.getJdbcUrl());
+        config.setUsername(database.getUsername());
+        config.setPassword(database.getPassword());
+        config.setDriverClassName(database.getDriverClassName());
+        try (var datasource = new HikariDataSource(config)) {
+            final var flyway = Flyway.configure()
+                    .dataSource(datasource).locations("classpath:schema").load();
+            flyway.migrate();
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        final var config = new HikariConfig();
+        config.setJdbcUrl(database.getJdbcUrl());
+        config.setUsername(database.getUsername());
+        config.setPassword(database.getPassword());
+        config.setDriverClassName(database.getDriverClassName());
+        try (var datasource = new HikariDataSource(config)) {
+            try (var connection = datasource.getConnection()) {
+                connection.createStatement().execute("DROP TABLE account");
+                connection.createStatement().execute("DROP TABLE transfer");
+                connection.createStatement().execute("DROP TABLE ledger_snapshot");
+                connection.createStatement().execute("DROP TABLE transfer_request");
+                connection.createStatement().execute("DROP TABLE transfer_idempotency_key");
+                connection.createStatement().execute("DROP TABLE flyway_schema_history");
+            }
+        }
+    }
+
+    @Test
+    void expiredDeadlineTest() {
+        final var alice = dao.createAccount("Alice", BigDecimal.valueOf(1000L));
+
+        assertThrows(Deadline.DeadlineExceededException.class,
+                () -> Deadline.call(Duration.ZERO, () -> dao.getBalance(alice)));
+        assertEquals(1000L, Deadline.call(Duration.ofSeconds(10), () -> dao.getBalance(alice)).longValue());
+    }
+
+    @Test
+    void lockWaitDeadlineTest() throws SQLException {
+        final var alice = dao.createAccount("Alice", BigDecimal.valueOf(1000L));
+        final var bob = dao.createAccount("Bob", BigDecimal.valueOf(2000L));
+
+        try (var connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.createStatement().execute("SELECT balance_minor FROM account WHERE id = " + alice + " FOR UPDATE");
+
+            // without the deadline both would wait the 50 seconds of innodb_lock_wait_timeout, the retrying one 100 times
+            final var start = System.nanoTime();
+            assertThrows(RuntimeException.class,
+                    () -> Deadline.run(Duration.ofSeconds(2), () -> dao.moveAmountSerializable(alice, bob, BigDecimal.ONE)));
+            assertThrows(RuntimeException.class,
+                    () -> Deadline.run(Duration.ofSeconds(2), () -> entityManagerDao.moveAmountSerializableDeadlocks(alice, bob, BigDecimal.ONE)));
+            final var elapsed = Duration.ofNanos(System.nanoTime() - start);
+            assertTrue(elapsed.compareTo(Duration.ofSeconds(10)) < 0, "elapsed: " + elapsed);
+
+            connection.rollback();
+        }
+
+        assertEquals(1000L, dao.getBalance(alice).longValue());
+        assertEquals(3000L, dao.getTotalBalances().longValue());
+        // connections went back to the pool with the default lock wait timeout
+        try (var connection = dataSource.getConnection()) {
+            final var resultSet = connection.createStatement().executeQuery("SELECT @@SESSION.innodb_lock_wait_timeout = @@GLOBAL.innodb_lock_wait_timeout");
+            resultSet.next();
+            assertTrue(resultSet.getBoolean(1));
+        }
+    }
+}
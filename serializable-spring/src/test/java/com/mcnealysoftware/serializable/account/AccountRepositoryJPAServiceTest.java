@@ -19,12 +19,16 @@ import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.util.LinkedList;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
 @Testcontainers
@@ -41,6 +45,9 @@ public class AccountRepositoryJPAServiceTest {
         registry.add("spring.datasource.username", database::getUsername);
         registry.add("spring.datasource.password", database::getPassword);
         registry.add("spring.datasource.driver-class-name", database::getDriverClassName);
+        registry.add("spring.r2dbc.url", () -> "r2dbc:mysql://" + database.getHost() + ":" + database.getMappedPort(3306) + "/" + database.getDatabaseName());
+        registry.add("spring.r2dbc.username", database::getUsername);
+        registry.add("spring.r2dbc.password", database::getPassword);
     }
 
     @BeforeEach
@@ -67,6 +74,10 @@ public class AccountRepositoryJPAServiceTest {
         try (var datasource = new HikariDataSource(config)) {
             try (var connection = datasource.getConnection()) {
                 connection.createStatement().execute("DROP TABLE account");
+                connection.createStatement().execute("DROP TABLE transfer");
+                connection.createStatement().execute("DROP TABLE ledger_snapshot");
+                connection.createStatement().execute("DROP TABLE transfer_request");
+                connection.createStatement().execute("DROP TABLE transfer_idempotency_key");
                 connection.createStatement().execute("DROP TABLE flyway_schema_history");
             }
         }
@@ -126,6 +137,45 @@ public class AccountRepositoryJPAServiceTest {
         assertEquals(Optional.of(30000L), totals.stream().map(this::resolveFuture).reduce(BigDecimal::add).map(BigDecimal::longValue));
     }
 
+    @Test
+    void moveAccountTestConcurrentSerializableNoWait() throws InterruptedException {
+        final var alice = dao.createAccount("Alice", BigDecimal.valueOf(1000L));
+        final var bob = dao.createAccount("Bob", BigDecimal.valueOf(2000L));
+
+        final var contended = new AtomicInteger();
+        final var results = new ConcurrentLinkedQueue<TransferResult>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 100; i++) {
+                executor.submit(() -> {
+                    // the caller reschedules, here simply a short random pause before trying again
+                    TransferResult result;
+                    while ((result = dao.moveAmountSerializableNoWait(alice, bob, BigDecimal.valueOf(2L))) == TransferResult.CONTENDED) {
+                        contended.incrementAndGet();
+                        Thread.sleep(ThreadLocalRandom.current().nextInt(1, 5));
+                    }
+                    results.add(result);
+                    while ((result = dao.moveAmountSerializableNoWait(bob, alice, BigDecimal.valueOf(1L))) == TransferResult.CONTENDED) {
+                        contended.incrementAndGet();
+                        Thread.sleep(ThreadLocalRandom.current().nextInt(1, 5));
+                    }
+                    results.add(result);
+                    return null;
+                });
+            }
+
+            executor.shutdown();
+            executor.awaitTermination(100, TimeUnit.SECONDS);
+        }
+
+        // every transfer gets through in the end, and with 100 at a time on two rows NOWAIT turns some away
+        assertEquals(200L, results.stream().filter(result -> result == TransferResult.APPLIED).count());
+        assertTrue(contended.get() > 0);
+        assertEquals(900L, dao.getBalance(alice).longValue());
+        assertEquals(2100L, dao.getBalance(bob).longValue());
+        assertEquals(3000L, dao.getTotalBalances().longValue());
+    }
+
     private BigDecimal resolveFuture(Future<BigDecimal> f) {
         try {
             return f.get();
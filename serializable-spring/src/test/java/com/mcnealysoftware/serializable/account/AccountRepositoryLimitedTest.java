@@ -0,0 +1,145 @@
+package com.mcnealysoftware.serializable.account;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.mysql.MySQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.LinkedList;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Testcontainers
+public class AccountRepositoryLimitedTest {
+
+    @Container
+    private static final MySQLContainer database = new MySQLContainer(DockerImageName.parse("mysql:8.0.36"));
+    @Autowired
+    AccountRepositoryLimited dao;
+
+    @DynamicPropertySource
+    static void databaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", database::getJdbcUrl);
+        registry.add("spring.datasource.username", database::getUsername);
+        registry.add("spring.datasource.password", database::getPassword);
+        registry.add("spring.datasource.driver-class-name", database::getDriverClassName);
+        registry.add("spring.r2dbc.url", () -> "r2dbc:mysql://" + database.getHost() + ":" + database.getMappedPort(3306) + "/" + database.getDatabaseName());
+        registry.add("spring.r2dbc.username", database::getUsername);
+        registry.add("spring.r2dbc.password", database::getPassword);
+        // plenty of time, every transfer has to make it for the balances to add up
+        registry.add("account.limiter.max-wait", () -> "PT100S");
+    }
+
+    @BeforeEach
+    void setUp() {
+        final var config = new HikariConfig();
+        config.setJdbcUrl(database.getJdbcUrl());
+        config.setUsername(database.getUsername());
+        config.setPassword(database.getPassword());
+        config.setDriverClassName(database.getDriverClassName());
+        try (var datasource = new HikariDataSource(config)) {
+            final var flyway = Flyway.configure()
+                    .dataSource(datasource).locations("classpath:schema").load();
+            flyway.migrate();
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        final var config = new HikariConfig();
+        config.setJdbcUrl(database.getJdbcUrl());
+        config.setUsername(database.getUsername());
+        config.setPassword(database.getPassword());
+        config.setDriverClassName(database.getDriverClassName());
+        try (var datasource = new HikariDataSource(config)) {
+            try (var connection = datasource.getConnection()) {
+                connection.createStatement().execute("DROP TABLE account");
+                connection.createStatement().execute("DROP TABLE transfer");
+                connection.createStatement().execute("DROP TABLE ledger_snapshot");
+                connection.createStatement().execute("DROP TABLE transfer_request");
+                connection.createStatement().execute("DROP TABLE transfer_idempotency_key");
+                connection.createStatement().execute("DROP TABLE flyway_schema_history");
+            }
+        }
+    }
+
+    @Test
+    void moveAccountTestConcurrentSerializable() throws InterruptedException {
+        final var alice = dao.createAccount("Alice", BigDecimal.valueOf(1000L));
+        final var bob = dao.createAccount("Bob", BigDecimal.valueOf(2000L));
+
+        final var totals = new LinkedList<Future<BigDecimal>>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 100; i++) {
+                executor.submit(() -> {
+                    try {
+                        dao.moveAmountSerializable(alice, bob, BigDecimal.valueOf(2L));
+                        dao.moveAmountSerializable(bob, alice, BigDecimal.valueOf(1L));
+                    } catch (Exception e) {
+                        System.out.println(e.getMessage());
+                    }
+                });
+                if (i % 10 == 0) {
+                    totals.add(executor.submit(() ->
+                            dao.getTotalBalancesCommitted())
+                    );
+                }
+            }
+
+            executor.shutdown();
+            executor.awaitTermination(100, TimeUnit.SECONDS);
+        }
+
+        assertEquals(900L, dao.getBalance(alice).longValue());
+        assertEquals(2100L, dao.getBalance(bob).longValue());
+        assertEquals(3000L, dao.getTotalBalancesCommitted().longValue());
+        assertEquals(0, dao.getWriteLimiter().getInFlight());
+        assertEquals(Optional.of(30000L), totals.stream().map(this::resolveFuture).reduce(BigDecimal::add).map(BigDecimal::longValue));
+    }
+
+    @Test
+    void isOverloadedTest() {
+        assertTrue(AccountRepositoryLimited.isOverloaded(new CannotAcquireLockException("lock wait timeout")));
+        assertTrue(AccountRepositoryLimited.isOverloaded(new QueryTimeoutException("timeout")));
+        assertTrue(AccountRepositoryLimited.isOverloaded(new CannotGetJdbcConnectionException("no connection")));
+        assertTrue(AccountRepositoryLimited.isOverloaded(new RuntimeException(new SQLTransactionRollbackException("deadlock"))));
+        assertFalse(AccountRepositoryLimited.isOverloaded(new EmptyResultDataAccessException(1)));
+        assertFalse(AccountRepositoryLimited.isOverloaded(new DataIntegrityViolationException("duplicate")));
+        assertFalse(AccountRepositoryLimited.isOverloaded(new IllegalArgumentException()));
+    }
+
+    private BigDecimal resolveFuture(Future<BigDecimal> f) {
+        try {
+            return f.get();
+        } catch (Exception e) {
+            return BigDecimal.ZERO;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.mcnealysoftware.serializable.account;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.mysql.MySQLContainer;
+import org.testcontainers.utility.DockerImageName;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@Testcontainers
+public class AccountRepositoryR2dbcTest {
+
+    @Container
+    private static final MySQLContainer database = new MySQLContainer(DockerImageName.parse("mysql:8.0.36"));
+    @Autowired
+    AccountRepositoryR2dbc dao;
+    @Autowired
+    AccountRepositoryJdbc jdbcDao;
+
+    @DynamicPropertySource
+    static void databaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", database::getJdbcUrl);
+        registry.add("spring.datasource.username", database::getUsername);
+        registry.add("spring.datasource.password", database::getPassword);
+        registry.add("spring.datasource.driver-class-name", database::getDriverClassName);
+        registry.add("spring.r2dbc.url", () -> "r2dbc:mysql://" + database.getHost() + ":" + database.getMappedPort(3306) + "/" + database.getDatabaseName());
+        registry.add("spring.r2dbc.username", database::getUsername);
+        registry.add("spring.r2dbc.password", database::getPassword);
+    }
+
+    @BeforeEach
+    void setUp() {
+        final var config = new HikariConfig();
+        config.setJdbcUrl(database.getJdbcUrl());
+        config.setUsername(database.getUsername());
+        config.setPassword(database.getPassword());
+        config.setDriverClassName(database.getDriverClassName());
+        try (var datasource = new HikariDataSource(config)) {
+            final var flyway = Flyway.configure()
+                    .dataSource(datasource).locations("classpath:schema").load();
+            flyway.migrate();
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        final var config = new HikariConfig();
+        config.setJdbcUrl(database.getJdbcUrl());
+        config.setUsername(database.getUsername());
+        config.setPassword(database.getPassword());
+        config.setDriverClassName(database.getDriverClassName());
+        try (var datasource = new HikariDataSource(config)) {
+            try (var connection = datasource.getConnection()) {
+                connection.createStatement().execute("DROP TABLE account");
+                connection.createStatement().execute("DROP TABLE transfer");
+                connection.createStatement().execute("DROP TABLE ledger_snapshot");
+                connection.createStatement().execute("DROP TABLE transfer_request");
+                connection.createStatement().execute("DROP TABLE transfer_idempotency_key");
+                connection.createStatement().execute("DROP TABLE flyway_schema_history");
+            }
+        }
+    }
+
+    @Test
+    void createAccountTest() {
+        StepVerifier.create(dao.createAccount("Alice", BigDecimal.valueOf(1000L)))
+                .expectNext(1L)
+                .verifyComplete();
+        StepVerifier.create(dao.createAccount("Bob", BigDecimal.valueOf(2000L)))
+                .expectNext(2L)
+                .verifyComplete();
+    }
+
+    @Test
+    void moveAccountTestConcurrentReadCommitted() {
+        final var alice = dao.createAccount("Alice", BigDecimal.valueOf(1000L)).block();
+        final var bob = dao.createAccount("Bob", BigDecimal.valueOf(2000L)).block();
+
+        final var totals = Flux.range(0, 100)
+                .flatMap(i -> dao.moveAmount(alice, bob, BigDecimal.valueOf(1L))
+                        .then(i % 10 == 0 ? dao.getTotalBalancesCommitted() : Mono.empty()))
+                .reduce(BigDecimal::add)
+                .block(Duration.ofSeconds(100));
+
+        assertEquals(900L, dao.getBalance(alice).block().longValue());
+        assertEquals(2100L, dao.getBalance(bob).block().longValue());
+        assertEquals(3000L, dao.getTotalBalances().block().longValue());
+        assertEquals(30000L, totals.longValue());
+    }
+
+    @Test
+    void moveAccountTestConcurrentSerializable() {
+        final var alice = dao.createAccount("Alice", BigDecimal.valueOf(1000L)).block();
+        final var bob = dao.createAccount("Bob", BigDecimal.valueOf(2000L)).block();
+
+        final var totals = Flux.range(0, 100)
+                .flatMap(i -> dao.moveAmountSerializable(alice, bob, BigDecimal.valueOf(2L))
+                        .then(dao.moveAmountSerializable(bob, alice, BigDecimal.valueOf(1L)))
+                        .then(i % 10 == 0 ? dao.getTotalBalancesCommitted() : Mono.empty()))
+                .reduce(BigDecimal::add)
+                .block(Duration.ofSeconds(100));
+
+        assertEquals(900L, dao.getBalance(alice).block().longValue());
+        assertEquals(2100L, dao.getBalance(bob).block().longValue());
+        assertEquals(3000L, dao.getTotalBalances().block().longValue());
+        assertEquals(30000L, totals.longValue());
+    }
+
+    @Test
+    void moveAccountTestSerializableMissingAccount() {
+        final var alice = dao.createAccount("Alice", BigDecimal.valueOf(1000L)).block();
+
+        // the missing account locked second, and first
+        StepVerifier.create(dao.moveAmountSerializable(alice, alice + 1, BigDecimal.valueOf(100L)))
+                .expectError(EmptyResultDataAccessException.class)
+                .verify(Duration.ofSeconds(10));
+        StepVerifier.create(dao.moveAmountSerializable(alice, 0L, BigDecimal.valueOf(100L)))
+                .expectError(EmptyResultDataAccessException.class)
+                .verify(Duration.ofSeconds(10));
+
+        assertEquals(1000L, dao.getBalance(alice).block().longValue());
+        assertEquals(1000L, dao.getTotalBalances().block().longValue());
+    }
+
+    @Test
+    void getAccountsTest() {
+        Flux.range(0, 25)
+                .concatMap(i -> dao.createAccount("Alice", BigDecimal.valueOf(1000L)))
+                .blockLast();
+
+        assertEquals(10L, dao.getAccounts(0, 10).count().block());
+        assertEquals(5L, dao.getAccounts(2, 10).count().block());
+    }
+
+    /**
+     * Same number of balance reads through the blocking and the reactive repository. The JDBC path needs a
+     * thread per in-flight query, the R2DBC path keeps them all in flight on the event loop.
+     */
+    @Test
+    @Tag("benchmark")
+    void getBalanceBenchmark() throws InterruptedException {
+        final var alice = jdbcDao.createAccount("Alice", BigDecimal.valueOf(1000L));
+        final var reads = 10_000;
+
+        final var jdbcStart = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < reads; i++) {
+                executor.submit(() -> jdbcDao.getBalance(alice));
+            }
+            executor.shutdown();
+            executor.awaitTermination(100, TimeUnit.SECONDS);
+        }
+        final var jdbcMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - jdbcStart);
+
+        final var r2dbcStart = System.nanoTime();
+        final var r2dbcReads = Flux.range(0, reads)
+                .flatMap(i -> dao.getBalance(alice), 256)
+                .count()
+                .block(Duration.ofSeconds(100));
+        final var r2dbcMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - r2dbcStart);
+
+        System.out.println("getBalance x " + reads + ": jdbc " + jdbcMillis + "ms, r2dbc " + r2dbcMillis + "ms");
+        assertEquals(reads, r2dbcReads);
+    }
+}
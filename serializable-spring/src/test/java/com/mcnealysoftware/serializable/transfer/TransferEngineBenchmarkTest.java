@@ -0,0 +1,122 @@
+package com.mcnealysoftware.serializable.transfer;
+
+import com.mcnealysoftware.serializable.account.AccountRepositoryJdbc;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.mysql.MySQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Transfers per second of every {@link TransferEngine}, on a few hot accounts and spread over many. Only prints, run
+ * with the benchmark task.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Testcontainers
+public class TransferEngineBenchmarkTest {
+
+    @Container
+    private static final MySQLContainer database = new MySQLContainer(DockerImageName.parse("mysql:8.0.36"));
+    @Autowired
+    TransferEngines engines;
+    @Autowired
+    AccountRepositoryJdbc accounts;
+
+    @DynamicPropertySource
+    static void databaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", database::getJdbcUrl);
+        registry.add("spring.datasource.username", database::getUsername);
+        registry.add("spring.datasource.password", database::getPassword);
+        registry.add("spring.datasource.driver-class-name", database::getDriverClassName);
+        registry.add("spring.r2dbc.url", () -> "r2dbc:mysql://" + database.getHost() + ":" + database.getMappedPort(3306) + "/" + database.getDatabaseName());
+        registry.add("spring.r2dbc.username", database::getUsername);
+        registry.add("spring.r2dbc.password", database::getPassword);
+    }
+
+    @BeforeEach
+    void setUp() {
+        final var config = new HikariConfig();
+        config.setJdbcUrl(database.getJdbcUrl());
+        config.setUsername(database.getUsername());
+        config.setPassword(database.getPassword());
+        config.setDriverClassName(database.getDriverClassName());
+        try (var datasource = new HikariDataSource(config)) {
+            final var flyway = Flyway.configure()
+                    .dataSource(datasource).locations("classpath:schema").load();
+            flyway.migrate();
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        final var config = new HikariConfig();
+        config.setJdbcUrl(database.getJdbcUrl());
+        config.setUsername(database.getUsername());
+        config.setPassword(database.getPassword());
+        config.setDriverClassName(database.getDriverClassName());
+        try (var datasource = new HikariDataSource(config)) {
+            try (var connection = datasource.getConnection()) {
+                connection.createStatement().execute("DROP TABLE account");
+                connection.createStatement().execute("DROP TABLE transfer");
+                connection.createStatement().execute("DROP TABLE ledger_snapshot");
+                connection.createStatement().execute("DROP TABLE transfer_request");
+                connection.createStatement().execute("DROP TABLE transfer_idempotency_key");
+                connection.createStatement().execute("DROP TABLE flyway_schema_history");
+            }
+        }
+    }
+
+    private static final int TRANSFERS = 2000;
+
+    @Test
+    void throughputBenchmark() throws InterruptedException {
+        System.out.printf("%-14s %10s %12s%n", "engine", "accounts", "transfers/s");
+        for (int accountCount : new int[]{2, 100}) {
+            for (String name : new String[]{"blind-update", "pessimistic", "optimistic", "batched"}) {
+                final var engine = engines.get(name);
+                final var ids = new ArrayList<Long>();
+                for (int i = 0; i < accountCount; i++) {
+                    ids.add(accounts.createAccount("Account " + i, BigDecimal.valueOf(1000L)));
+                }
+                final var total = accounts.getTotalBalancesCommitted();
+
+                final var start = System.nanoTime();
+                try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                    for (int i = 0; i < TRANSFERS; i++) {
+                        final var from = ThreadLocalRandom.current().nextInt(accountCount);
+                        final var to = (from + 1 + ThreadLocalRandom.current().nextInt(accountCount - 1)) % accountCount;
+                        executor.submit(() -> engine.transfer(ids.get(from), ids.get(to), 1L));
+                    }
+
+                    executor.shutdown();
+                    executor.awaitTermination(600, TimeUnit.SECONDS);
+                }
+                final var seconds = (System.nanoTime() - start) / 1e9;
+
+                assertEquals(0, total.compareTo(accounts.getTotalBalancesCommitted()));
+                System.out.printf("%-14s %10d %12.0f%n", name, accountCount, TRANSFERS / seconds);
+            }
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.mcnealysoftware.serializable.transfer;
+
+import com.mcnealysoftware.serializable.IdempotencyKeyConfiguration;
+import com.mcnealysoftware.serializable.account.AccountRepositoryJdbc;
+import com.mcnealysoftware.serializable.account.TransferResult;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.mysql.MySQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * What every {@link TransferEngine} has to do, run against each of them.
+ */
+@SpringBootTest
+@Testcontainers
+public class TransferEngineTest {
+
+    @Container
+    private static final MySQLContainer database = new MySQLContainer(DockerImageName.parse("mysql:8.0.36"));
+    @Autowired
+    TransferEngines engines;
+    @Autowired
+    AccountRepositoryJdbc accounts;
+    @Autowired
+    DataSource dataSource;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    IdempotencyKeys idempotencyKeys;
+
+    @DynamicPropertySource
+    static void databaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", database::getJdbcUrl);
+        registry.add("spring.datasource.username", database::getUsername);
+        registry.add("spring.datasource.password", database::getPassword);
+        registry.add("spring.datasource.driver-class-name", database::getDriverClassName);
+        registry.add("spring.r2dbc.url", () -> "r2dbc:mysql://" + database.getHost() + ":" + database.getMappedPort(3306) + "/" + database.getDatabaseName());
+        registry.add("spring.r2dbc.username", database::getUsername);
+        registry.add("spring.r2dbc.password", database::getPassword);
+        registry.add("account.transfer.engine.payroll", () -> "batched");
+    }
+
+    @BeforeEach
+    void setUp() {
+        final var config = new HikariConfig();
+        config.setJdbcUrl(database.getJdbcUrl());
+        config.setUsername(database.getUsername());
+        config.setPassword(database.getPassword());
+        config.setDriverClassName(database.getDriverClassName());
+        try (var datasource = new HikariDataSource(config)) {
+            final var flyway = Flyway.configure()
+                    .dataSource(datasource).locations("classpath:schema").load();
+            flyway.migrate();
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        final var config = new HikariConfig();
+        config.setJdbcUrl(database.getJdbcUrl());
+        config.setUsername(database.getUsername());
+        config.setPassword(database.getPassword());
+        config.setDriverClassName(database.getDriverClassName());
+        try (var datasource = new HikariDataSource(config)) {
+            try (var connection = datasource.getConnection()) {
+                connection.createStatement().execute("DROP TABLE account");
+                connection.createStatement().execute("DROP TABLE transfer");
+                connection.createStatement().execute("DROP TABLE ledger_snapshot");
+                connection.createStatement().execute("DROP TABLE transfer_request");
+                connection.createStatement().execute("DROP TABLE transfer_idempotency_key");
+                connection.createStatement().execute("DROP TABLE flyway_schema_history");
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"blind-update", "pessimistic", "optimistic", "batched"})
+    void transferTest(String name) {
+        final var engine = engines.get(name);
+        final var alice = accounts.createAccount("Alice", BigDecimal.valueOf(1000L));
+        final var bob = accounts.createAccount("Bob", BigDecimal.valueOf(2000L));
+
+        engine.transfer(alice, bob, 10000L);
+        engine.transfer(bob, alice, 2550L);
+
+        assertEquals(0, BigDecimal.valueOf(92550L, 2).compareTo(accounts.getBalance(alice)));
+        assertEquals(0, BigDecimal.valueOf(207450L, 2).compareTo(accounts.getBalance(bob)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"blind-update", "pessimistic", "optimistic", "batched"})
+    void transferTestMissingAccount(String name) {
+        final var engine = engines.get(name);
+        final var alice = accounts.createAccount("Alice", BigDecimal.valueOf(1000L));
+
+        assertThrows(DataAccessException.class, () -> engine.transfer(alice, alice + 1, 100L));
+        assertThrows(DataAccessException.class, () -> engine.transfer(alice + 1, alice, 100L));
+        assertEquals(1000L, accounts.getBalance(alice).longValue());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"blind-update", "pessimistic", "optimistic", "batched"})
+    void transferTestConcurrent(String name) throws InterruptedException {
+        final var engine = engines.get(name);
+        final var ids = new ArrayList<Long>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(accounts.createAccount("Account " + i, BigDecimal.valueOf(1000L)));
+        }
+
+        // every transfer has to make it, both directions on the same few accounts
+        final var expected = new long[ids.size()];
+        final var transfers = new ArrayList<int[]>();
+        for (int i = 0; i < 200; i++) {
+            final var from = ThreadLocalRandom.current().nextInt(ids.size());
+            final var to = (from + 1 + ThreadLocalRandom.current().nextInt(ids.size() - 1)) % ids.size();
+            final var amount = 1 + ThreadLocalRandom.current().nextInt(100);
+            transfers.add(new int[]{from, to, amount});
+            expected[from] -= amount;
+            expected[to] += amount;
+        }
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int[] transfer : transfers) {
+                executor.submit(() -> engine.transfer(ids.get(transfer[0]), ids.get(transfer[1]), transfer[2]));
+            }
+
+            executor.shutdown();
+            executor.awaitTermination(100, TimeUnit.SECONDS);
+        }
+
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(100000L + expected[i], accounts.getBalanceMinor(ids.get(i)));
+        }
+        assertEquals(5000L, accounts.getTotalBalancesCommitted().longValue());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"blind-update", "pessimistic", "optimistic", "batched"})
+    void transferTestIdempotent(String name) {
+        final var engine = engines.get(name);
+        final var alice = accounts.createAccount("Alice", BigDecimal.valueOf(1000L));
+        final var bob = accounts.createAccount("Bob", BigDecimal.valueOf(2000L));
+
+        assertEquals(TransferResult.APPLIED, engine.transfer(alice, bob, 10000L, name + "-1"));
+        assertEquals(TransferResult.REPLAYED, engine.transfer(alice, bob, 10000L, name + "-1"));
+        assertThrows(IllegalArgumentException.class, () -> engine.transfer(alice, bob, 20000L, name + "-1"));
+        // a transfer that failed didn't use up its key
+        assertThrows(DataAccessException.class, () -> engine.transfer(alice, bob + 1, 10000L, name + "-2"));
+        assertEquals(TransferResult.APPLIED, engine.transfer(alice, bob, 10000L, name + "-2"));
+
+        assertEquals(800L, accounts.getBalance(alice).longValue());
+        assertEquals(2200L, accounts.getBalance(bob).longValue());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"blind-update", "pessimistic", "optimistic", "batched"})
+    void transferTestIdempotentConcurrent(String name) throws InterruptedException {
+        final var engine = engines.get(name);
+        final var alice = accounts.createAccount("Alice", BigDecimal.valueOf(1000L));
+        final var bob = accounts.createAccount("Bob", BigDecimal.valueOf(2000L));
+
+        // a client retrying before the first attempt has even committed
+        final var results = new LinkedList<Future<TransferResult>>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 20; i++) {
+                results.add(executor.submit(() -> engine.transfer(alice, bob, 10000L, "retried")));
+            }
+
+            executor.shutdown();
+            executor.awaitTermination(100, TimeUnit.SECONDS);
+        }
+
+        assertEquals(1, results.stream().filter(result -> resolve(result) == TransferResult.APPLIED).count());
+        assertEquals(19, results.stream().filter(result -> resolve(result) == TransferResult.REPLAYED).count());
+        assertEquals(900L, accounts.getBalance(alice).longValue());
+        assertEquals(2100L, accounts.getBalance(bob).longValue());
+    }
+
+    @Test
+    void transferTestIdempotentCached() {
+        final var alice = accounts.createAccount("Alice", BigDecimal.valueOf(1000L));
+        final var bob = accounts.createAccount("Bob", BigDecimal.valueOf(2000L));
+
+        assertEquals(TransferResult.APPLIED, engines.transfer("payroll", alice, bob, BigDecimal.TEN, "cached"));
+        // gone from the table, still known in memory, so this never reached the database
+        new JdbcTemplate(dataSource).update("DELETE FROM transfer_idempotency_key");
+        assertEquals(TransferResult.REPLAYED, engines.transfer("payroll", alice, bob, BigDecimal.TEN, "cached"));
+        assertThrows(IllegalArgumentException.class, () -> engines.transfer("payroll", bob, alice, BigDecimal.TEN, "cached"));
+
+        assertEquals(990L, accounts.getBalance(alice).longValue());
+    }
+
+    @Test
+    void idempotencyKeyCleanupTest() {
+        final var engine = engines.get(TransferEngines.DEFAULT_ENGINE);
+        final var alice = accounts.createAccount("Alice", BigDecimal.valueOf(1000L));
+        final var bob = accounts.createAccount("Bob", BigDecimal.valueOf(2000L));
+        final var jdbcTemplate = new JdbcTemplate(dataSource);
+
+        assertEquals(TransferResult.APPLIED, engine.transfer(alice, bob, 10000L, "expired"));
+        assertEquals(TransferResult.APPLIED, engine.transfer(alice, bob, 10000L, "kept"));
+        jdbcTemplate.update("UPDATE transfer_idempotency_key SET timestamp = NOW() - INTERVAL 2 DAY WHERE idempotency_key = 'expired'");
+
+        new IdempotencyKeyConfiguration(idempotencyKeys, Duration.ofDays(1)).deleteExpiredKeys();
+
+        assertEquals(List.of("kept"), jdbcTemplate.queryForList("SELECT idempotency_key FROM transfer_idempotency_key", String.class));
+    }
+
+    @Test
+    void batchedTestClosed() throws InterruptedException, ExecutionException {
+        final var alice = accounts.createAccount("Alice", BigDecimal.valueOf(1000L));
+        final var bob = accounts.createAccount("Bob", BigDecimal.valueOf(2000L));
+        // a window that never closes on its own
+        final var engine = new BatchedTransferEngine(dataSource, transactionManager, idempotencyKeys, Duration.ofHours(1), 100);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final var pending = executor.submit(() -> engine.transfer(alice, bob, 10000L));
+            Thread.sleep(200);
+            engine.close();
+
+            // applied by close, not left waiting
+            pending.get();
+        }
+        assertThrows(IllegalStateException.class, () -> engine.transfer(alice, bob, 10000L));
+        assertEquals(900L, accounts.getBalance(alice).longValue());
+        assertEquals(2100L, accounts.getBalance(bob).longValue());
+    }
+
+    private static TransferResult resolve(Future<TransferResult> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    void forKindTest() {
+        assertEquals("batched", engines.forKind("payroll").name());
+        assertEquals(TransferEngines.DEFAULT_ENGINE, engines.forKind("merchant").name());
+        assertThrows(IllegalArgumentException.class, () -> engines.get("eventual"));
+
+        final var alice = accounts.createAccount("Alice", BigDecimal.valueOf(1000L));
+        final var bob = accounts.createAccount("Bob", BigDecimal.valueOf(2000L));
+        engines.transfer("payroll", alice, bob, BigDecimal.valueOf(100L));
+        assertEquals(List.of(900L, 2100L), List.of(accounts.getBalance(alice).longValue(), accounts.getBalance(bob).longValue()));
+    }
+}
@@ -0,0 +1,146 @@
+package com.mcnealysoftware.serializable.web;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.mysql.MySQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Testcontainers
+public class AccountControllerTest {
+
+    @Container
+    private static final MySQLContainer database = new MySQLContainer(DockerImageName.parse("mysql:8.0.36"));
+    @Autowired
+    TestRestTemplate http;
+
+    @DynamicPropertySource
+    static void databaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", database::getJdbcUrl);
+        registry.add("spring.datasource.username", database::getUsername);
+        registry.add("spring.datasource.password", database::getPassword);
+        registry.add("spring.datasource.driver-class-name", database::getDriverClassName);
+        registry.add("spring.r2dbc.url", () -> "r2dbc:mysql://" + database.getHost() + ":" + database.getMappedPort(3306) + "/" + database.getDatabaseName());
+        registry.add("spring.r2dbc.username", database::getUsername);
+        registry.add("spring.r2dbc.password", database::getPassword);
+        registry.add("account.transfer.engine.blind-update-test", () -> "blind-update");
+    }
+
+    @BeforeEach
+    void setUp() {
+        final var config = new HikariConfig();
+        config.setJdbcUrl(database.getJdbcUrl());
+        config.setUsername(database.getUsername());
+        config.setPassword(database.getPassword());
+        config.setDriverClassName(database.getDriverClassName());
+        try (var datasource = new HikariDataSource(config)) {
+            final var flyway = Flyway.configure()
+                    .dataSource(datasource).locations("classpath:schema").load();
+            flyway.migrate();
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        final var config = new HikariConfig();
+        config.setJdbcUrl(database.getJdbcUrl());
+        config.setUsername(database.getUsername());
+        config.setPassword(database.getPassword());
+        config.setDriverClassName(database.getDriverClassName());
+        try (var datasource = new HikariDataSource(config)) {
+            try (var connection = datasource.getConnection()) {
+                connection.createStatement().execute("DROP TABLE account");
+                connection.createStatement().execute("DROP TABLE transfer");
+                connection.createStatement().execute("DROP TABLE ledger_snapshot");
+                connection.createStatement().execute("DROP TABLE transfer_request");
+                connection.createStatement().execute("DROP TABLE transfer_idempotency_key");
+                connection.createStatement().execute("DROP TABLE flyway_schema_history");
+            }
+        }
+    }
+
+    private long createAccount(String name, long balance) {
+        final var response = http.postForEntity("/accounts", new AccountController.CreateAccountRequest(name, BigDecimal.valueOf(balance)), AccountController.AccountResponse.class);
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        return response.getBody().id();
+    }
+
+    private BigDecimal getBalance(long id) {
+        return http.getForObject("/accounts/" + id + "/balance", BigDecimal.class);
+    }
+
+    @Test
+    void createAccountTest() {
+        final var alice = createAccount("Alice", 1000L);
+        final var bob = createAccount("Bob", 2000L);
+
+        assertEquals(0, BigDecimal.valueOf(1000L).compareTo(getBalance(alice)));
+        final var accounts = http.getForObject("/accounts?page=0&pageSize=10", AccountController.AccountResponse[].class);
+        assertEquals(2, accounts.length);
+        assertEquals("Bob", accounts[1].name());
+        assertEquals(bob, accounts[1].id());
+    }
+
+    @Test
+    void moveAmountTest() {
+        final var alice = createAccount("Alice", 1000L);
+        final var bob = createAccount("Bob", 2000L);
+
+        final var response = http.postForEntity("/transfers", new AccountController.TransferRequest(alice, bob, BigDecimal.valueOf(100L), null), Void.class);
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+        assertEquals(0, BigDecimal.valueOf(900L).compareTo(getBalance(alice)));
+        assertEquals(0, BigDecimal.valueOf(2100L).compareTo(getBalance(bob)));
+
+        final var blind = http.postForEntity("/transfers", new AccountController.TransferRequest(bob, alice, BigDecimal.valueOf(50L), "blind-update-test"), Void.class);
+        assertEquals(HttpStatus.NO_CONTENT, blind.getStatusCode());
+        assertEquals(0, BigDecimal.valueOf(950L).compareTo(getBalance(alice)));
+    }
+
+    @Test
+    void moveAmountTestIdempotent() {
+        final var alice = createAccount("Alice", 1000L);
+        final var bob = createAccount("Bob", 2000L);
+        final var headers = new HttpHeaders();
+        headers.set("Idempotency-Key", "transfer-1");
+        final var request = new HttpEntity<>(new AccountController.TransferRequest(alice, bob, BigDecimal.valueOf(100L), null), headers);
+
+        final var first = http.postForEntity("/transfers", request, Void.class);
+        final var retry = http.postForEntity("/transfers", request, Void.class);
+
+        assertEquals(HttpStatus.NO_CONTENT, first.getStatusCode());
+        assertEquals("false", first.getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals(HttpStatus.NO_CONTENT, retry.getStatusCode());
+        assertEquals("true", retry.getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals(0, BigDecimal.valueOf(900L).compareTo(getBalance(alice)));
+    }
+
+    @Test
+    void errorTest() {
+        final var alice = createAccount("Alice", 1000L);
+
+        assertEquals(HttpStatus.NOT_FOUND, http.getForEntity("/accounts/" + (alice + 1) + "/balance", String.class).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, http.postForEntity("/transfers", new AccountController.TransferRequest(alice, alice + 1, BigDecimal.ONE, null), String.class).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, http.postForEntity("/transfers", new AccountController.TransferRequest(alice, alice, BigDecimal.ONE, null), String.class).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, http.postForEntity("/transfers", new AccountController.TransferRequest(alice, alice + 1, BigDecimal.ONE.negate(), null), String.class).getStatusCode());
+        assertEquals(0, BigDecimal.valueOf(1000L).compareTo(getBalance(alice)));
+    }
+}
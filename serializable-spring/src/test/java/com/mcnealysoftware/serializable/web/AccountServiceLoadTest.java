@@ -0,0 +1,172 @@
+package com.mcnealysoftware.serializable.web;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.mysql.MySQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Drives the running service over real HTTP, from more clients than it has connections, so the numbers include
+ * Tomcat, JSON, the backpressure filter and the pool. Only prints, run with the benchmark task.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Testcontainers
+public class AccountServiceLoadTest {
+
+    @Container
+    private static final MySQLContainer database = new MySQLContainer(DockerImageName.parse("mysql:8.0.36"));
+    @LocalServerPort
+    int port;
+
+    @DynamicPropertySource
+    static void databaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", database::getJdbcUrl);
+        registry.add("spring.datasource.username", database::getUsername);
+        registry.add("spring.datasource.password", database::getPassword);
+        registry.add("spring.datasource.driver-class-name", database::getDriverClassName);
+        registry.add("spring.r2dbc.url", () -> "r2dbc:mysql://" + database.getHost() + ":" + database.getMappedPort(3306) + "/" + database.getDatabaseName());
+        registry.add("spring.r2dbc.username", database::getUsername);
+        registry.add("spring.r2dbc.password", database::getPassword);
+    }
+
+    @BeforeEach
+    void setUp() {
+        final var config = new HikariConfig();
+        config.setJdbcUrl(database.getJdbcUrl());
+        config.setUsername(database.getUsername());
+        config.setPassword(database.getPassword());
+        config.setDriverClassName(database.getDriverClassName());
+        try (var datasource = new HikariDataSource(config)) {
+            final var flyway = Flyway.configure()
+                    .dataSource(datasource).locations("classpath:schema").load();
+            flyway.migrate();
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        final var config = new HikariConfig();
+        config.setJdbcUrl(database.getJdbcUrl());
+        config.setUsername(database.getUsername());
+        config.setPassword(database.getPassword());
+        config.setDriverClassName(database.getDriverClassName());
+        try (var datasource = new HikariDataSource(config)) {
+            try (var connection = datasource.getConnection()) {
+                connection.createStatement().execute("DROP TABLE account");
+                connection.createStatement().execute("DROP TABLE transfer");
+                connection.createStatement().execute("DROP TABLE ledger_snapshot");
+                connection.createStatement().execute("DROP TABLE transfer_request");
+                connection.createStatement().execute("DROP TABLE transfer_idempotency_key");
+                connection.createStatement().execute("DROP TABLE flyway_schema_history");
+            }
+        }
+    }
+
+    private static final int ACCOUNTS = 100;
+    private static final int CLIENTS = 500;
+    private static final int REQUESTS_PER_CLIENT = 40;
+
+    @Test
+    void loadTest() throws InterruptedException, IOException {
+        final var client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            send(client, post("/accounts", "{\"name\":\"Account " + i + "\",\"balance\":1000}"));
+        }
+
+        // 4 balance reads for every transfer, transfers spread over all accounts
+        final var latencies = new long[CLIENTS * REQUESTS_PER_CLIENT];
+        final var rejected = new AtomicInteger();
+        final var failed = new AtomicInteger();
+        final var start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < CLIENTS; c++) {
+                final var clientIndex = c;
+                executor.submit(() -> {
+                    for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                        final var random = ThreadLocalRandom.current();
+                        final var from = 1 + random.nextInt(ACCOUNTS);
+                        final var to = 1 + (from + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                        final var request = r % 5 == 0
+                                ? post("/transfers", "{\"fromAccountId\":" + from + ",\"toAccountId\":" + to + ",\"amount\":1}")
+                                : HttpRequest.newBuilder(uri("/accounts/" + from + "/balance")).GET().build();
+                        final var requestStart = System.nanoTime();
+                        try {
+                            final var status = send(client, request);
+                            if (status == 503) {
+                                rejected.incrementAndGet();
+                            } else if (status >= 400) {
+                                failed.incrementAndGet();
+                            }
+                        } catch (IOException e) {
+                            failed.incrementAndGet();
+                        }
+                        latencies[clientIndex * REQUESTS_PER_CLIENT + r] = System.nanoTime() - requestStart;
+                    }
+                    return null;
+                });
+            }
+
+            executor.shutdown();
+            executor.awaitTermination(600, TimeUnit.SECONDS);
+        }
+        final var seconds = (System.nanoTime() - start) / 1e9;
+
+        Arrays.sort(latencies);
+        System.out.printf("%10s %12s %8s %8s %8s %8s%n", "requests", "requests/s", "p50 ms", "p99 ms", "503", "failed");
+        System.out.printf("%10d %12.0f %8.1f %8.1f %8d %8d%n", latencies.length, latencies.length / seconds,
+                latencies[latencies.length / 2] / 1e6, latencies[latencies.length * 99 / 100] / 1e6, rejected.get(), failed.get());
+
+        // no money made or lost along the way
+        final var total = HttpClient.newHttpClient().send(HttpRequest.newBuilder(uri("/accounts?pageSize=" + ACCOUNTS)).GET().build(), HttpResponse.BodyHandlers.ofString()).body();
+        assertEquals(ACCOUNTS * 1000L, Arrays.stream(total.split("\"balance\":")).skip(1)
+                .mapToDouble(balance -> Double.parseDouble(balance.substring(0, balance.indexOf('}'))))
+                .sum(), 0.001);
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private static int send(HttpClient client, HttpRequest request) throws IOException {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+}
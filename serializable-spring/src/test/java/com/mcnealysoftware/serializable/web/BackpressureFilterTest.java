@@ -0,0 +1,81 @@
+package com.mcnealysoftware.serializable.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.LinkedList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BackpressureFilterTest {
+
+    private static int call(BackpressureFilter filter, CountDownLatch release) throws Exception {
+        final var response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/accounts/1/balance"), response, (request, res) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        return response.getStatus();
+    }
+
+    @Test
+    void backpressureFilterTest() throws Exception {
+        // 2 running and 2 waiting, the rest is turned away
+        final var filter = new BackpressureFilter(2, 1, Duration.ofSeconds(100));
+        final var release = new CountDownLatch(1);
+        final var statuses = new LinkedList<Future<Integer>>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 10; i++) {
+                statuses.add(executor.submit(() -> call(filter, release)));
+            }
+            // the rejected ones return right away
+            while (statuses.stream().filter(Future::isDone).count() < 6) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            executor.shutdown();
+            executor.awaitTermination(100, TimeUnit.SECONDS);
+        }
+
+        assertEquals(4, statuses.stream().filter(status -> resolve(status) == 200).count());
+        assertEquals(6, statuses.stream().filter(status -> resolve(status) == 503).count());
+        // and the slots are back
+        assertEquals(200, call(filter, release));
+    }
+
+    @Test
+    void backpressureFilterTestMaxWait() throws Exception {
+        final var filter = new BackpressureFilter(1, 1, Duration.ofMillis(50));
+        final var release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final var running = executor.submit(() -> call(filter, release));
+            Thread.sleep(100);
+            // admitted, but no slot frees up in time
+            assertEquals(503, call(filter, release));
+            release.countDown();
+            assertEquals(200, running.get());
+        }
+    }
+
+    private static int resolve(Future<Integer> status) {
+        try {
+            return status.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
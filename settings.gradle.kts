@@ -4,3 +4,7 @@ include("read-committed")
 include("read-uncommitted-spring")
 include("read-committed-spring")
 include("serializable-spring")
+include("row-mapper-processor")
+include("minor-units")
+include("account-schema")
+include("slow-operation-log")
@@ -0,0 +1,274 @@
+package com.mcnealysoftware.slowoperationlog;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Logs every statement that takes longer than a threshold, with its bind parameters, the isolation level of the
+ * connection and how long it took, one JSON object per line. The first time a slow statement shows up, and after
+ * that at most once per explainInterval, the plan from EXPLAIN FORMAT=JSON is captured along with it, while the
+ * table still looks the way it did when the statement was slow.
+ * <p>
+ * Works below the DAOs and repositories, {@link #wrap} a DataSource and hand that to the AccountDao or the Spring
+ * context.
+ */
+public class SlowOperationLog implements AutoCloseable {
+
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate", "executeLargeUpdate");
+    private static final Set<String> EXPLAINABLE = Set.of("SELECT", "INSERT", "UPDATE", "DELETE", "REPLACE", "WITH");
+    /**
+     * Most statements whose last EXPLAIN is remembered. SQL with the values written into it is a new statement every
+     * time, the one that was slow the longest ago is forgotten first.
+     */
+    static final int MAX_EXPLAINED_STATEMENTS = 1_000;
+
+    private final long thresholdNanos;
+    private final long explainIntervalNanos;
+    private final ReentrantLock explainedLock = new ReentrantLock();
+    private final Map<String, Long> lastExplained = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_EXPLAINED_STATEMENTS;
+        }
+    };
+    private final Set<Thread> explaining = ConcurrentHashMap.newKeySet();
+    private final FileHandler fileHandler;
+    private final Logger logger;
+
+    /**
+     * @param filePattern Where to write, as a {@link FileHandler} pattern, for example "%t/slow-operations.%g.log".
+     * @param maxFileBytes A file is rolled over once it reaches this size.
+     * @param files        Number of rolled over files that are kept.
+     */
+    public SlowOperationLog(Duration threshold, Duration explainInterval, String filePattern, int maxFileBytes, int files) {
+        this.thresholdNanos = threshold.toNanos();
+        this.explainIntervalNanos = explainInterval.toNanos();
+        try {
+            this.fileHandler = new FileHandler(filePattern, maxFileBytes, files, true);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        fileHandler.setFormatter(new Formatter() {
+            @Override
+            public String format(LogRecord record) {
+                return record.getMessage() + System.lineSeparator();
+            }
+        });
+        this.logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.addHandler(fileHandler);
+    }
+
+    public DataSource wrap(DataSource dataSource) {
+        return proxy(DataSource.class, dataSource, (method, args) -> {
+            final var result = method.invoke(dataSource, args);
+            return result instanceof Connection connection ? wrap(connection, dataSource) : result;
+        });
+    }
+
+    /**
+     * Waits for the plans still being captured, then closes the file.
+     */
+    @Override
+    public void close() {
+        for (Thread thread : explaining) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        fileHandler.close();
+    }
+
+    private Connection wrap(Connection connection, DataSource dataSource) {
+        return proxy(Connection.class, connection, (method, args) -> {
+            final var result = method.invoke(connection, args);
+            if (result instanceof CallableStatement) {
+                return result;
+            } else if (result instanceof PreparedStatement statement) {
+                return wrap(PreparedStatement.class, statement, connection, dataSource, (String) args[0]);
+            } else if (result instanceof Statement statement) {
+                return wrap(Statement.class, statement, connection, dataSource, null);
+            }
+            return result;
+        });
+    }
+
+    private <T extends Statement> T wrap(Class<T> type, T statement, Connection connection, DataSource dataSource, String preparedSql) {
+        // parameter index to value, as they were last bound
+        final var parameters = new TreeMap<Integer, Object>();
+        return proxy(type, statement, (method, args) -> {
+            final var name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                parameters.put(index, args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            }
+            if (!EXECUTE_METHODS.contains(name)) {
+                return method.invoke(statement, args);
+            }
+
+            final var sql = preparedSql != null ? preparedSql : (String) args[0];
+            final var start = Instant.now();
+            final var startNanos = System.nanoTime();
+            try {
+                return method.invoke(statement, args);
+            } finally {
+                final var elapsedNanos = System.nanoTime() - startNanos;
+                if (elapsedNanos >= thresholdNanos) {
+                    record(sql, preparedSql != null ? new TreeMap<>(parameters) : Map.of(), isolationLevel(connection), start, elapsedNanos, dataSource);
+                }
+            }
+        });
+    }
+
+    private void record(String sql, Map<Integer, Object> parameters, int isolationLevel, Instant start, long elapsedNanos, DataSource dataSource) {
+        final var entry = new StringBuilder()
+                .append("{\"timestamp\":\"").append(start).append('"')
+                .append(",\"elapsed_ms\":").append(elapsedNanos / 1_000_000.0)
+                .append(",\"isolation\":\"").append(isolationName(isolationLevel)).append('"')
+                .append(",\"sql\":").append(quote(sql))
+                .append(",\"parameters\":[");
+        var first = true;
+        for (Object parameter : parameters.values()) {
+            entry.append(first ? "" : ",").append(quote(String.valueOf(parameter)));
+            first = false;
+        }
+        entry.append(']');
+
+        if (!shouldExplain(sql)) {
+            logger.info(entry.append('}').toString());
+            return;
+        }
+        // on another connection and thread, the caller's transaction and latency stay out of it
+        final var thread = Thread.ofVirtual().unstarted(() -> {
+            try (var connection = dataSource.getConnection()) {
+                final var explain = connection.prepareStatement("EXPLAIN FORMAT=JSON " + sql);
+                for (Map.Entry<Integer, Object> parameter : parameters.entrySet()) {
+                    explain.setObject(parameter.getKey(), parameter.getValue());
+                }
+                final var resultSet = explain.executeQuery();
+                resultSet.next();
+                // MySQL pretty prints the plan, raw newlines only ever sit between JSON tokens
+                entry.append(",\"plan\":").append(resultSet.getString(1).replaceAll("\\s*\\R\\s*", ""));
+            } catch (SQLException | RuntimeException e) {
+                entry.append(",\"plan_error\":").append(quote(String.valueOf(e.getMessage())));
+            } finally {
+                logger.info(entry.append('}').toString());
+                explaining.remove(Thread.currentThread());
+            }
+        });
+        explaining.add(thread);
+        thread.start();
+    }
+
+    private boolean shouldExplain(String sql) {
+        final var trimmed = sql.stripLeading();
+        final var keyword = trimmed.split("\\s", 2)[0].toUpperCase();
+        if (!EXPLAINABLE.contains(keyword)) {
+            return false;
+        }
+        final var now = System.nanoTime();
+        explainedLock.lock();
+        try {
+            final var last = lastExplained.get(sql);
+            if (last != null && now - last < explainIntervalNanos) {
+                return false;
+            }
+            lastExplained.put(sql, now);
+            return true;
+        } finally {
+            explainedLock.unlock();
+        }
+    }
+
+    private static int isolationLevel(Connection connection) {
+        try {
+            return connection.getTransactionIsolation();
+        } catch (SQLException e) {
+            return Connection.TRANSACTION_NONE;
+        }
+    }
+
+    private static String isolationName(int isolationLevel) {
+        return switch (isolationLevel) {
+            case Connection.TRANSACTION_READ_UNCOMMITTED -> "READ_UNCOMMITTED";
+            case Connection.TRANSACTION_READ_COMMITTED -> "READ_COMMITTED";
+            case Connection.TRANSACTION_REPEATABLE_READ -> "REPEATABLE_READ";
+            case Connection.TRANSACTION_SERIALIZABLE -> "SERIALIZABLE";
+            default -> "NONE";
+        };
+    }
+
+    private static String quote(String value) {
+        final var quoted = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    @FunctionalInterface
+    private interface Invocation {
+        Object invoke(Method method, Object[] args) throws Throwable;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, Invocation invocation) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(target)) {
+                        return target;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            try {
+                return invocation.invoke(method, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        });
+    }
+}